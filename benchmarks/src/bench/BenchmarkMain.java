@@ -0,0 +1,23 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * bench.BenchmarkMain
+ *
+ * Runs the JMH benchmarks with the GC profiler always on, so every
+ * result comes with its allocation rate. Takes the usual JMH
+ * command line options, for example a regex of the benchmarks to run.
+ *
+ * @author Marek Gargas
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build()).run();
+    }
+}
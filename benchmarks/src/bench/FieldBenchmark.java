@@ -0,0 +1,50 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import field.Field;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * bench.FieldBenchmark
+ *
+ * Measures parsing the field the engine sends every round.
+ *
+ * @author Marek Gargas
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldBenchmark {
+
+    @Param({"EARLY_GAME", "MANY_BUGS", "MANY_SNIPPETS"})
+    public String fixture;
+
+    private String input;
+    private Field field;
+
+    @Setup
+    public void setUp() {
+        input = Fixtures.byName(fixture);
+        field = Fixtures.parse(input);
+    }
+
+    @Benchmark
+    public Field parseFromString() {
+        field.parseFromString(input);
+        return field;
+    }
+}
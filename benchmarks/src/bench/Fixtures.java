@@ -0,0 +1,118 @@
+package bench;
+
+import bot.BotState;
+import bot.FixtureStates;
+import field.Field;
+
+/**
+ * bench.Fixtures
+ *
+ * Fields used by the benchmarks, in the format the engine sends them.
+ *
+ * @author Marek Gargas
+ */
+public final class Fixtures {
+
+    public static final int WIDTH = 19;
+    public static final int HEIGHT = 15;
+
+    /** Standard field early in the game, a couple of bugs and snippets */
+    public static final String EARLY_GAME =
+            ".,.,.,x,.,.,.,.,.,x,.,.,.,.,C,x,.,.,.," +
+            ".,x,.,x,C,x,x,x,.,x,.,x,x,x,.,x,.,x,.," +
+            "B,x,.,.,.,.,.,.,.,x,.,.,.,.,.,.,C,x,.," +
+            ".,x,x,.,x,x,.,x,.,.,.,x,.,x,x,.,x,x,.," +
+            ".,.,.,.,x,.,.,x,x,x,x,x,.,.,x,.,.,.,.," +
+            "x,x,.,x,x,.,.,.,.,e,.,.,.,.,x,x,.,x,x," +
+            "x,x,.,.,.,.,x,x,.,x,.,x,x,.,.,.,.,x,x," +
+            "Gl;C,.,P0,x,x,.,x,.,.,.,.,.,x,.,x,x,P1,B,Gr," +
+            "x,x,.,.,.,.,x,x,x,x,x,x,x,.,.,C,.,x,x," +
+            "x,x,.,x,x,.,.,.,.,.,.,.,.,.,x,x,.,x,x," +
+            ".,.,.,.,x,.,.,x,x,x,x,x,.,.,x,.,.,.,.," +
+            ".,x,x,.,x,x,.,x,.,.,.,x,.,x,x,.,x,x,.," +
+            ".,x,.,E0,.,.,.,.,.,x,.,.,.,.,.,.,B2,x,.," +
+            ".,x,.,x,.,x,x,x,.,x,.,x,x,x,.,x,.,x,.," +
+            ".,.,.,x,.,.,.,.,C,x,.,.,.,.,.,x,.,.,.";
+
+    /** The early game field with 13 bugs of all four types roaming around */
+    public static final String MANY_BUGS =
+            ".,.,.,x,.,.,.,.,.,x,.,.,.,.,C,x,.,.,.," +
+            ".,x,E2,x,C,x,x,x,.,x,.,x,x,x,.,x,.,x,.," +
+            "B,x,.,.,E2,.,.,.,.,x,.,E0,.,.,.,E0,C,x,.," +
+            ".,x,x,.,x,x,.,x,.,.,.,x,.,x,x,.,x,x,.," +
+            ".,.,.,.,x,.,.,x,x,x,x,x,.,.,x,E1,.,.,.," +
+            "x,x,.,x,x,.,.,.,.,e,.,.,.,E3,x,x,.,x,x," +
+            "x,x,.,.,.,.,x,x,.,x,.,x,x,.,.,.,.,x,x," +
+            "Gl;C,.,P0,x,x,.,x,.,.,.,.,.,x,.,x,x,P1,B,Gr," +
+            "x,x,.,.,.,.,x,x,x,x,x,x,x,.,.,C,.,x,x," +
+            "x,x,.,x,x,.,.,.,.,E0,.,.,.,.,x,x,.,x,x," +
+            ".,.,.,.,x,.,.,x,x,x,x,x,.,.,x,.,.,.,.," +
+            "E2,x,x,.,x,x,.,x,.,.,E3,x,.,x,x,.,x,x,.," +
+            "E3,x,.,E0,E1,.,.,.,.,x,.,.,.,.,.,.,B2,x,.," +
+            ".,x,.,x,.,x,x,x,.,x,.,x,x,x,.,x,.,x,E1," +
+            ".,.,.,x,.,.,.,.,C,x,.,.,.,.,.,x,.,.,.";
+
+    /** The early game field with 30 more snippets */
+    public static final String MANY_SNIPPETS =
+            ".,.,.,x,.,.,.,.,C,x,.,C,.,.,C,x,.,.,C," +
+            ".,x,.,x,C,x,x,x,.,x,.,x,x,x,.,x,.,x,C," +
+            "B,x,.,C,.,.,.,.,.,x,.,.,.,.,.,.,C,x,.," +
+            ".,x,x,.,x,x,.,x,.,C,.,x,C,x,x,C,x,x,.," +
+            "C,.,.,.,x,.,.,x,x,x,x,x,.,.,x,.,C,.,.," +
+            "x,x,.,x,x,.,.,C,.,e,.,.,C,.,x,x,.,x,x," +
+            "x,x,.,C,.,.,x,x,.,x,.,x,x,.,.,.,.,x,x," +
+            "Gl;C,.,P0,x,x,C,x,.,.,C,.,.,x,.,x,x,P1,B,Gr," +
+            "x,x,.,.,.,.,x,x,x,x,x,x,x,.,.,C,.,x,x," +
+            "x,x,C,x,x,C,.,C,.,C,.,.,C,.,x,x,.,x,x," +
+            ".,.,.,.,x,.,C,x,x,x,x,x,.,C,x,.,.,C,.," +
+            ".,x,x,.,x,x,.,x,.,C,.,x,.,x,x,.,x,x,.," +
+            ".,x,.,E0,.,.,C,.,C,x,.,.,.,C,.,.,B2,x,.," +
+            ".,x,C,x,.,x,x,x,.,x,.,x,x,x,.,x,.,x,.," +
+            ".,.,C,x,.,.,.,C,C,x,.,.,.,.,.,x,.,.,.";
+
+    private Fixtures() {}
+
+    /**
+     * Returns a fixture by the name of its constant, used as a JMH parameter
+     * @param name EARLY_GAME, MANY_BUGS or MANY_SNIPPETS
+     */
+    public static String byName(String name) {
+        switch (name) {
+            case "EARLY_GAME":
+                return EARLY_GAME;
+            case "MANY_BUGS":
+                return MANY_BUGS;
+            case "MANY_SNIPPETS":
+                return MANY_SNIPPETS;
+            default:
+                throw new IllegalArgumentException("Unknown fixture " + name);
+        }
+    }
+
+    /**
+     * Returns a field parsed from the fixture, I am player 0
+     * @param input Field in the engine format
+     */
+    public static Field parse(String input) {
+        Field field = new Field();
+        field.setWidth(WIDTH);
+        field.setHeight(HEIGHT);
+        field.setMyId(0);
+        field.setOpponentId(1);
+        try {
+            field.initField();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        field.parseFromString(input);
+        return field;
+    }
+
+    /**
+     * Returns a bot state with the fixture field, I am player 0
+     * @param input Field in the engine format
+     */
+    public static BotState state(String input) {
+        return FixtureStates.create(WIDTH, HEIGHT, input);
+    }
+}
@@ -0,0 +1,60 @@
+package bench;
+
+import field.Field;
+import field.GameSimulator;
+
+/**
+ * bench.GameSimulatorBenchmark
+ *
+ * Measures how many nodes per second GameSimulator can visit.
+ * Plays random games of fixed depth with apply and undoes them
+ * again, the way a search walks the tree.
+ *
+ * @author Marek Gargas
+ */
+public class GameSimulatorBenchmark {
+
+    private static final int DEPTH = 10;
+    private static final long WARMUP_NANOS = 2_000_000_000L;
+    private static final long MEASURE_NANOS = 5_000_000_000L;
+
+    private long seed = 42;
+
+    public static void main(String[] args) {
+        Field field = Fixtures.parse(Fixtures.EARLY_GAME);
+        GameSimulator simulator = new GameSimulator(field);
+        simulator.load(field, new int[] {4, 4}, new int[] {1, 1});
+
+        GameSimulatorBenchmark benchmark = new GameSimulatorBenchmark();
+        benchmark.run(simulator, WARMUP_NANOS);
+        long start = System.nanoTime();
+        long nodes = benchmark.run(simulator, MEASURE_NANOS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(String.format("%d nodes in %.2f s: %.0f nodes/s", nodes, seconds, nodes / seconds));
+    }
+
+    private long run(GameSimulator simulator, long nanos) {
+        long end = System.nanoTime() + nanos;
+        long nodes = 0;
+        while (System.nanoTime() < end) {
+            for (int game = 0; game < 1000; game++) {
+                for (int depth = 0; depth < DEPTH; depth++) {
+                    simulator.apply(nextMove(), GameSimulator.NO_BOMB, nextMove(), GameSimulator.NO_BOMB);
+                }
+                for (int depth = 0; depth < DEPTH; depth++) {
+                    simulator.undo();
+                }
+                nodes += DEPTH;
+            }
+        }
+        return nodes;
+    }
+
+    private int nextMove() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return (int) ((seed >>> 33) % 5);
+    }
+}
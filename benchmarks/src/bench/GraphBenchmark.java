@@ -0,0 +1,102 @@
+package bench;
+
+import java.awt.*;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import field.Field;
+import graph.BFS;
+import graph.BitboardBFS;
+import graph.GraphParser;
+import graph.GridGraph;
+import graph.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * bench.GraphBenchmark
+ *
+ * Measures building the legacy graph map and running BFS
+ * on the grid graph from my position, both with the int array
+ * BFS and with the bit parallel BitboardBFS.
+ *
+ * @author Marek Gargas
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBenchmark {
+
+    @Param({"EARLY_GAME", "MANY_BUGS", "MANY_SNIPPETS"})
+    public String fixture;
+
+    private Field field;
+    private GraphParser graphParser;
+    private BFS bfs;
+    private BitboardBFS bitboardBFS;
+    private int myCell;
+    private int farCell;
+
+    @Setup
+    public void setUp() {
+        field = Fixtures.parse(Fixtures.byName(fixture));
+        graphParser = new GraphParser(field);
+        GridGraph graph = graphParser.getGridGraph();
+        bfs = new BFS(graph);
+        bitboardBFS = new BitboardBFS(graph);
+        Point myPosition = field.getMyPosition();
+        myCell = graph.getCellId(myPosition.x, myPosition.y);
+        //The cell furthest from me, so the distance search has to expand almost everything
+        bfs.search(myCell);
+        farCell = myCell;
+        for (int cell = 0; cell < graph.getCellCount(); cell++) {
+            if (bfs.distanceTo(cell) > bfs.distanceTo(farCell)) farCell = cell;
+        }
+    }
+
+    @Benchmark
+    public HashMap<Point, Vertex> getGraphMap() {
+        return graphParser.getGraphMap(true);
+    }
+
+    @Benchmark
+    public BFS bfsInit() {
+        bfs.init(field.getMyPosition());
+        return bfs;
+    }
+
+    @Benchmark
+    public BFS bfsSearch() {
+        bfs.search(myCell);
+        return bfs;
+    }
+
+    @Benchmark
+    public BitboardBFS bitboardSearch() {
+        bitboardBFS.search(myCell);
+        return bitboardBFS;
+    }
+
+    @Benchmark
+    public int bitboardDistance() {
+        return bitboardBFS.distance(myCell, farCell);
+    }
+
+    @Benchmark
+    public Point getClosestObjectPosition() {
+        bfs.init(field.getMyPosition());
+        return bfs.getClosestObjectPosition(field.getSnippetPositions());
+    }
+}
@@ -0,0 +1,52 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import bot.BotState;
+import graph.Deadline;
+import graph.MoveSearch;
+import graph.ParallelParanoidSearch;
+import graph.ParanoidSearch;
+import move.MoveType;
+
+/**
+ * bench.ParallelSearchBenchmark
+ *
+ * Compares the time ParanoidSearch and ParallelParanoidSearch need
+ * to search the fixture field to a fixed depth. The parallel search
+ * uses as many cores as are available, at most four.
+ *
+ * @author Marek Gargas
+ */
+public class ParallelSearchBenchmark {
+
+    private static final int DEPTH = 11;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        BotState state = Fixtures.state(Fixtures.EARLY_GAME);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        measure("sequential", new ParanoidSearch(), state);
+        long sequential = measure("sequential", new ParanoidSearch(), state);
+        measure("parallel", new ParallelParanoidSearch(), state);
+        long parallel = measure("parallel", new ParallelParanoidSearch(), state);
+
+        System.out.println(String.format("%d cores, speedup %.2fx", cores, (double) sequential / parallel));
+    }
+
+    private static long measure(String name, MoveSearch search, BotState state) {
+        long total = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            search.reset(state, MoveType.PASS);
+            long start = System.nanoTime();
+            for (int depth = 1; depth <= DEPTH; depth++) {
+                search.search(depth, new Deadline(TimeUnit.MINUTES.toMillis(10)));
+            }
+            total += System.nanoTime() - start;
+        }
+        long average = total / ROUNDS;
+        System.out.println(String.format("%s: %.1f ms to depth %d", name, average / 1e6, DEPTH));
+        return average;
+    }
+}
@@ -0,0 +1,95 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import bot.BotState;
+import bot.PlayerSnapshot;
+import graph.Deadline;
+import graph.MoveSearch;
+import graph.ParanoidSearch;
+import graph.Solver;
+import graph.TranspositionTable;
+import move.MoveType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * bench.SolverBenchmark
+ *
+ * Measures a whole Solver.getMove: the greedy move and iterative
+ * deepening of the single threaded search up to a fixed depth,
+ * so the result doesn't depend on the time budget. The transposition
+ * table is emptied before every move, as if the field was new.
+ *
+ * @author Marek Gargas
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+
+    private static final long BUDGET_MILLIS = 60_000;
+
+    @Param({"EARLY_GAME", "MANY_BUGS", "MANY_SNIPPETS"})
+    public String fixture;
+
+    @Param({"4", "8"})
+    public int depth;
+
+    private TranspositionTable table;
+    private Solver solver;
+
+    @Setup
+    public void setUp() {
+        BotState state = Fixtures.state(Fixtures.byName(fixture));
+        table = new TranspositionTable(18);
+        solver = new Solver(state, new DepthLimitedSearch(new ParanoidSearch(table), depth));
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        table.clear();
+    }
+
+    @Benchmark
+    public MoveType getMove() {
+        return solver.getMove(new Deadline(BUDGET_MILLIS));
+    }
+
+    /**
+     * Search that stops iterative deepening after the maximal depth
+     */
+    private static final class DepthLimitedSearch implements MoveSearch {
+
+        private final MoveSearch search;
+        private final int maxDepth;
+
+        DepthLimitedSearch(MoveSearch search, int maxDepth) {
+            this.search = search;
+            this.maxDepth = maxDepth;
+        }
+
+        @Override
+        public void reset(BotState state, PlayerSnapshot players, MoveType fallbackMove) {
+            search.reset(state, players, fallbackMove);
+        }
+
+        @Override
+        public MoveType search(int depth, Deadline deadline) {
+            return depth > maxDepth ? null : search.search(depth, deadline);
+        }
+    }
+}
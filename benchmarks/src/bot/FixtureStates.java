@@ -0,0 +1,45 @@
+package bot;
+
+import player.Player;
+
+/**
+ * bot.FixtureStates
+ *
+ * Creates bot states for the benchmarks the same way BotParser does
+ * from the settings the engine sends. I am player0 with id 0.
+ *
+ * @author Marek Gargas
+ */
+public final class FixtureStates {
+
+    private FixtureStates() {}
+
+    /**
+     * Returns a state with the fixture field parsed
+     * @param width Width of the field
+     * @param height Height of the field
+     * @param field Field in the engine format
+     */
+    public static BotState create(int width, int height, String field) {
+        BotState state = new BotState();
+        state.setTimebank(10000);
+        state.setMaxTimebank(10000);
+        state.setTimePerMove(500);
+        state.setMaxRounds(250);
+        state.setRoundNumber(1);
+        state.setMyName("player0");
+        state.getPlayers().put("player0", new Player("player0"));
+        state.getPlayers().put("player1", new Player("player1"));
+        state.getField().setMyId(0);
+        state.getField().setOpponentId(1);
+        state.getField().setWidth(width);
+        state.getField().setHeight(height);
+        try {
+            state.getField().initField();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        state.getField().parseFromString(field);
+        return state;
+    }
+}
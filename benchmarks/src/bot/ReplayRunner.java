@@ -0,0 +1,110 @@
+package bot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * bot.ReplayRunner
+ *
+ * Feeds recorded games through BotParser and BotStarter as fast
+ * as possible and reports the latency of every action move and
+ * the throughput in moves per second. Recordings are made with
+ * the --record option of the bot, plain engine input works too.
+ *
+ * By default every move searches until the recorded timebank runs
+ * out, so the latencies mostly show the time budget; the depth
+ * reached per move tells how much work fitted in it. With --depth
+ * every move searches exactly to the given depth without pondering,
+ * so the latencies measure compute time and can be compared
+ * between versions.
+ *
+ * Usage: ReplayRunner [--no-ponder] [--depth N] recording...
+ *
+ * @author Marek Gargas
+ */
+public class ReplayRunner {
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        boolean ponder = !arguments.remove("--no-ponder");
+        int depth = 0;
+        int depthIndex = arguments.indexOf("--depth");
+        if (depthIndex != -1 && depthIndex + 1 < arguments.size()) {
+            depth = Integer.parseInt(arguments.remove(depthIndex + 1));
+            arguments.remove(depthIndex);
+            ponder = false;
+        }
+        if (arguments.isEmpty() || depthIndex != -1 && depth <= 0) {
+            System.err.println("Usage: ReplayRunner [--no-ponder] [--depth N] recording...");
+            return;
+        }
+
+        long[] latencies = new long[0];
+        int[] depths = new int[0];
+        long nanos = 0;
+        for (String recording : arguments) {
+            byte[] input = stripTimestamps(Files.readAllBytes(Paths.get(recording)));
+            BotParser parser = new BotParser(new BotStarter(), ponder,
+                    new ByteArrayInputStream(input), OutputStream.nullOutputStream());
+            if (depth > 0) parser.setFixedDepth(depth);
+            long start = System.nanoTime();
+            parser.run();
+            nanos += System.nanoTime() - start;
+
+            long[] gameLatencies = parser.getMoveLatencies();
+            System.out.println(String.format("%s: %d moves", recording, gameLatencies.length));
+            int length = latencies.length;
+            latencies = Arrays.copyOf(latencies, length + gameLatencies.length);
+            System.arraycopy(gameLatencies, 0, latencies, length, gameLatencies.length);
+            int[] gameDepths = parser.getMoveDepths();
+            depths = Arrays.copyOf(depths, length + gameDepths.length);
+            System.arraycopy(gameDepths, 0, depths, length, gameDepths.length);
+        }
+
+        if (latencies.length == 0) {
+            System.out.println("No moves were asked for");
+            return;
+        }
+        Arrays.sort(latencies);
+        System.out.println(String.format("%d moves, p50 %.2f ms, p99 %.2f ms, max %.2f ms, %.1f moves/s",
+                latencies.length, percentile(latencies, 50) / 1e6, percentile(latencies, 99) / 1e6,
+                latencies[latencies.length - 1] / 1e6, latencies.length / (nanos / 1e9)));
+        Arrays.sort(depths);
+        System.out.println(String.format("depth min %d, p50 %d, mean %.1f, max %d",
+                depths[0], depths[(depths.length - 1) / 2], Arrays.stream(depths).average().orElse(0),
+                depths[depths.length - 1]));
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    /**
+     * Removes the timestamps the recording mode puts in front of every line.
+     * Engine commands never start with a digit, so lines without one are kept as they are.
+     */
+    private static byte[] stripTimestamps(byte[] recording) {
+        ByteArrayOutputStream input = new ByteArrayOutputStream(recording.length);
+        int lineStart = 0;
+        while (lineStart < recording.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < recording.length && recording[lineEnd] != '\n') lineEnd++;
+            int start = lineStart;
+            if (start < lineEnd && recording[start] >= '0' && recording[start] <= '9') {
+                while (start < lineEnd && recording[start] != ' ') start++;
+                start++;
+            }
+            if (start < lineEnd) input.write(recording, start, lineEnd - start);
+            input.write('\n');
+            lineStart = lineEnd + 1;
+        }
+        return input.toByteArray();
+    }
+}
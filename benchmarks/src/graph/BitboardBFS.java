@@ -0,0 +1,220 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * graph.BitboardBFS
+ *
+ * Class responsible for bit parallel BFS on the grid graph.
+ * Every row of the field is stored in one long, bit x is column x.
+ * A whole BFS layer is expanded with shifts, ANDs and ORs over the rows,
+ * gates are added afterwards from a short list. Works for fields
+ * up to 64 cells wide, the standard field is 19 x 15.
+ * It is kept next to the benchmarks as an experiment: on the standard
+ * field it is not faster than the int array BFS, so the bot doesn't use it.
+ *
+ * @author Marek Gargas
+ */
+public class BitboardBFS {
+
+    public static final int MAX_WIDTH = 64;
+
+    private final GridGraph graph;
+    private final int width;
+    private final int height;
+    private final long[] open;
+    private final long[] blocked;
+    private final long[] visited;
+    private final long[] frontier;
+    private final long[] next;
+    private final int[] gateFrom;
+    private final int[] gateTo;
+    private final int[] layer;
+    private final int[] generationOf;
+    private int generation;
+
+    public BitboardBFS(GridGraph graph)
+    {
+        if(!supports(graph))
+        {
+            throw new IllegalArgumentException("Field is too wide for bitboard search: " + graph.getWidth());
+        }
+        this.graph = graph;
+        this.width = graph.getWidth();
+        this.height = graph.getHeight();
+        this.open = new long[height];
+        this.blocked = new long[height];
+        this.visited = new long[height];
+        this.frontier = new long[height];
+        this.next = new long[height];
+        this.layer = new int[graph.getCellCount()];
+        this.generationOf = new int[graph.getCellCount()];
+
+        int gateCount = 0;
+        for(int cell=0;cell<graph.getCellCount();cell++)
+        {
+            if(!graph.isWalkable(cell)) continue;
+            open[cell / width] |= 1L << (cell % width);
+            for(int edge = graph.getEdgeStart(cell); edge < graph.getEdgeEnd(cell); edge++)
+            {
+                if(!isGridNeighbour(cell, graph.getNeighbour(edge))) gateCount++;
+            }
+        }
+        this.gateFrom = new int[gateCount];
+        this.gateTo = new int[gateCount];
+        gateCount = 0;
+        for(int cell=0;cell<graph.getCellCount();cell++)
+        {
+            for(int edge = graph.getEdgeStart(cell); edge < graph.getEdgeEnd(cell); edge++)
+            {
+                int neighbour = graph.getNeighbour(edge);
+                if(isGridNeighbour(cell, neighbour)) continue;
+                gateFrom[gateCount] = cell;
+                gateTo[gateCount++] = neighbour;
+            }
+        }
+    }
+
+    public static boolean supports(GridGraph graph)
+    {
+        return graph.getWidth() <= MAX_WIDTH;
+    }
+
+    private boolean isGridNeighbour(int cell, int neighbour)
+    {
+        int dx = Math.abs(cell % width - neighbour % width);
+        int dy = Math.abs(cell / width - neighbour / width);
+        return dx + dy == 1;
+    }
+
+    /**
+     * Removes all blocked cells
+     */
+    public void clearBlocked()
+    {
+        Arrays.fill(blocked, 0L);
+    }
+
+    /**
+     * Blocks the cell for following searches, for example because of a bug
+     * @param cell Id of the cell
+     */
+    public void block(int cell)
+    {
+        blocked[cell / width] |= 1L << (cell % width);
+    }
+
+    /**
+     * Runs BFS from the start cell and records the layer of every reached cell.
+     * @param startCell Id of the start cell
+     */
+    public void search(int startCell)
+    {
+        run(startCell, -1);
+    }
+
+    /**
+     * Returns distance between two cells, the search stops as soon as
+     * the destination is reached. Afterwards only the cells reached
+     * so far count as reachable and have their layer recorded.
+     * @param startCell Id of the start cell
+     * @param endCell Id of the destination cell
+     * @return Distance or -1 if the destination can't be reached
+     */
+    public int distance(int startCell, int endCell)
+    {
+        return run(startCell, endCell);
+    }
+
+    private int run(int startCell, int endCell)
+    {
+        if(++generation == 0) // counter overflowed, old layers could look valid again
+        {
+            Arrays.fill(generationOf, 0);
+            generation = 1;
+        }
+        Arrays.fill(visited, 0L);
+        Arrays.fill(frontier, 0L);
+        if(startCell == -1) return -1;
+        int endRow = endCell == -1 ? 0 : endCell / width;
+        long endBit = endCell == -1 ? 0L : 1L << (endCell % width);
+
+        frontier[startCell / width] = 1L << (startCell % width);
+        visited[startCell / width] = frontier[startCell / width];
+        recordLayer(startCell / width, frontier[startCell / width], 0);
+        if(startCell == endCell) return 0;
+
+        for(int depth = 1; ; depth++)
+        {
+            boolean any = false;
+            for(int y = 0; y < height; y++)
+            {
+                long row = frontier[y];
+                long expanded = (row << 1) | (row >>> 1);
+                if(y > 0) expanded |= frontier[y - 1];
+                if(y < height - 1) expanded |= frontier[y + 1];
+                next[y] = expanded & open[y] & ~blocked[y] & ~visited[y];
+            }
+            for(int gate = 0; gate < gateFrom.length; gate++)
+            {
+                int from = gateFrom[gate];
+                if((frontier[from / width] & (1L << (from % width))) == 0) continue;
+                int to = gateTo[gate];
+                long bit = 1L << (to % width);
+                if((blocked[to / width] & bit) == 0 && (visited[to / width] & bit) == 0) next[to / width] |= bit;
+            }
+            for(int y = 0; y < height; y++)
+            {
+                long row = next[y];
+                frontier[y] = row;
+                if(row == 0) continue;
+                any = true;
+                visited[y] |= row;
+                recordLayer(y, row, depth);
+            }
+            if(!any) return -1;
+            if((visited[endRow] & endBit) != 0) return depth;
+        }
+    }
+
+    private void recordLayer(int y, long row, int depth)
+    {
+        while(row != 0)
+        {
+            int cell = y * width + Long.numberOfTrailingZeros(row);
+            layer[cell] = depth;
+            generationOf[cell] = generation;
+            row &= row - 1;
+        }
+    }
+
+    /**
+     * Returns distance from the start of the last search to the cell
+     * or -1 if it wasn't reached.
+     * @param cell Id of the cell
+     */
+    public int distanceTo(int cell)
+    {
+        if(generationOf[cell] != generation) return -1;
+        return layer[cell];
+    }
+
+    /**
+     * Returns whether the cell was reached by the last search
+     * @param cell Id of the cell
+     */
+    public boolean isReachable(int cell)
+    {
+        return (visited[cell / width] & (1L << (cell % width))) != 0;
+    }
+
+    /**
+     * Returns amount of cells reached by the last search
+     */
+    public int getReachableCount()
+    {
+        int count = 0;
+        for(long row : visited) count += Long.bitCount(row);
+        return count;
+    }
+}
@@ -0,0 +1,155 @@
+package field;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import bench.Fixtures;
+import move.MoveType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * field.GameSimulatorTest
+ *
+ * Plays random lines of apply and undo on the fixtures. After every undo
+ * the simulator has to be in the state it had before the matching apply,
+ * and in the same state as a fresh simulator that only plays the moves
+ * still on the line. The incremental hash has to match the one computed
+ * from scratch after every step.
+ *
+ * @author Marek Gargas
+ */
+public class GameSimulatorTest {
+
+    private static final String[] FIXTURES = {Fixtures.EARLY_GAME, Fixtures.MANY_BUGS, Fixtures.MANY_SNIPPETS};
+    private static final int STEPS = 20000;
+    private static final int MAX_DEPTH = 12;
+    private static final int[] SNIPPETS = {4, 4};
+    private static final int[] BOMBS = {1, 1};
+    private static final int PASS = MoveType.PASS.ordinal();
+
+    @Test
+    public void undoRestoresEveryApply() {
+        for (String fixture : FIXTURES) {
+            playRandomLines(Fixtures.parse(fixture), new Random(42));
+        }
+    }
+
+    @Test
+    public void bugHeadingChangesHash() {
+        //The bug walks to the right end of its corridor, back through its cell to the left end and back again
+        Field field = Fixtures.parse(corridor());
+        GameSimulator simulator = new GameSimulator(field);
+        simulator.load(field, SNIPPETS, BOMBS);
+        long[] hashes = new long[5];
+        int[] cells = new int[5];
+        int[] previous = new int[5];
+        for (int step = 0; step < 5; step++) {
+            if (step > 0) simulator.apply(PASS, GameSimulator.NO_BOMB, PASS, GameSimulator.NO_BOMB);
+            assertEquals(simulator.computeHash(), simulator.getHash(), String.format("step %d", step));
+            hashes[step] = simulator.getHash();
+            cells[step] = simulator.getBugCell(0);
+            previous[step] = simulator.getBugPreviousCell(0);
+        }
+
+        assertEquals(cells[2], cells[4]);
+        assertNotEquals(previous[2], previous[4]);
+        assertNotEquals(hashes[2], hashes[4]);
+        assertNotEquals(hashes[0], hashes[2]);
+    }
+
+    /**
+     * Returns a field of walls with a bug in the middle of a corridor of three cells,
+     * the players are walled in above it
+     */
+    private static String corridor() {
+        String[] cells = new String[Fixtures.WIDTH * Fixtures.HEIGHT];
+        Arrays.fill(cells, "x");
+        cells[Fixtures.WIDTH + 1] = "P0";
+        cells[2 * Fixtures.WIDTH - 2] = "P1";
+        int middle = 7 * Fixtures.WIDTH + Fixtures.WIDTH / 2;
+        cells[middle - 1] = ".";
+        cells[middle] = "E0";
+        cells[middle + 1] = ".";
+        return String.join(",", cells);
+    }
+
+    private static void playRandomLines(Field field, Random random) {
+        GameSimulator simulator = new GameSimulator(field);
+        simulator.load(field, SNIPPETS, BOMBS);
+        int[][] line = new int[MAX_DEPTH][];
+        int[][] before = new int[MAX_DEPTH][];
+        int depth = 0;
+        for (int step = 0; step < STEPS; step++) {
+            boolean undo = depth == MAX_DEPTH || depth > 0 && random.nextInt(3) == 0;
+            if (undo) {
+                simulator.undo();
+                depth--;
+                String name = String.format("step %d, depth %d", step, depth);
+                assertEquals(simulator.computeHash(), simulator.getHash(), name);
+                assertArrayEquals(before[depth], snapshot(simulator), name);
+                assertArrayEquals(snapshot(replay(field, line, depth)), snapshot(simulator), name);
+            } else {
+                int[] moves = {random.nextInt(5), bombTicks(random), random.nextInt(5), bombTicks(random)};
+                before[depth] = snapshot(simulator);
+                line[depth++] = moves;
+                simulator.apply(moves[0], moves[1], moves[2], moves[3]);
+                assertEquals(simulator.computeHash(), simulator.getHash(), String.format("step %d", step));
+            }
+        }
+    }
+
+    private static int bombTicks(Random random) {
+        return random.nextInt(8) == 0 ? 2 + random.nextInt(4) : GameSimulator.NO_BOMB;
+    }
+
+    /**
+     * Returns a fresh simulator that played the first moves of the line
+     */
+    private static GameSimulator replay(Field field, int[][] line, int depth) {
+        GameSimulator simulator = new GameSimulator(field);
+        simulator.load(field, SNIPPETS, BOMBS);
+        for (int i = 0; i < depth; i++) {
+            simulator.apply(line[i][0], line[i][1], line[i][2], line[i][3]);
+        }
+        return simulator;
+    }
+
+    /**
+     * Returns everything the simulator tells about its state, the hash included
+     */
+    private static int[] snapshot(GameSimulator simulator) {
+        int[] values = new int[18];
+        int count = 0;
+        values[count++] = (int) simulator.getHash();
+        values[count++] = (int) (simulator.getHash() >>> 32);
+        values[count++] = simulator.getTick();
+        values[count++] = simulator.getSnippetCount();
+        for (int player = 0; player < 2; player++) {
+            values[count++] = simulator.getPlayerCell(player);
+            values[count++] = simulator.getSnippets(player);
+            values[count++] = simulator.getBombs(player);
+            values[count++] = simulator.isAlive(player) ? 1 : 0;
+        }
+        values[count++] = simulator.getBugCount();
+        values[count++] = simulator.getTickingBombCount();
+        int size = count + simulator.getBugCount() * 3 + simulator.getTickingBombCount() * 2 + simulator.getCellCount();
+        values = Arrays.copyOf(values, size);
+        for (int bug = 0; bug < simulator.getBugCount(); bug++) {
+            values[count++] = simulator.getBugCell(bug);
+            values[count++] = simulator.getBugPreviousCell(bug);
+            values[count++] = simulator.getBugType(bug);
+        }
+        for (int bomb = 0; bomb < simulator.getTickingBombCount(); bomb++) {
+            values[count++] = simulator.getTickingBombCell(bomb);
+            values[count++] = simulator.getTickingBombTicks(bomb);
+        }
+        for (int cell = 0; cell < simulator.getCellCount(); cell++) {
+            values[count++] = (simulator.hasSnippet(cell) ? 1 : 0) | (simulator.hasBomb(cell) ? 2 : 0);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,59 @@
+package graph;
+
+import bot.BotState;
+import bot.FixtureStates;
+import move.MoveType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * graph.BombPlannerTest
+ *
+ * Drops a bomb in a corridor whose only way out of the blast is a side
+ * cell in its middle. My opponent at the other end can't get out in time,
+ * so the bomb is worth dropping, unless a predicted bug comes up the side
+ * passage and crosses my way out.
+ *
+ * @author Marek Gargas
+ */
+public class BombPlannerTest {
+
+    private static final int WIDTH = 9;
+    private static final int HEIGHT = 3;
+    private static final int HORIZON = 24;
+
+    @Test
+    public void dropsWhenTheWayOutIsFree() {
+        assertNotEquals(BombPlanner.NO_BOMB, plan(corridor(".")));
+    }
+
+    @Test
+    public void rejectsDropWhenBugCrossesTheWayOut() {
+        assertEquals(BombPlanner.NO_BOMB, plan(corridor("E0")));
+    }
+
+    /**
+     * Returns the corridor with given content of the cell below the way out
+     */
+    private static String corridor(String below) {
+        return "x,x,x,.,x,x,x,x,x,"
+                + "P0,.,.,.,.,.,.,.,P1,"
+                + "x,x,x," + below + ",x,x,x,x,x";
+    }
+
+    private static int plan(String field) {
+        BotState state = FixtureStates.create(WIDTH, HEIGHT, field);
+        GridGraph graph = state.getGridGraph();
+        BugPredictor predictor = new BugPredictor(state.getDistanceTable());
+        predictor.predict(state.getField(), HORIZON);
+        BlastMap blastMap = new BlastMap(graph);
+        blastMap.update(state.getField(), state.getRoundNumber());
+        SpaceTimeSearch spaceTimeSearch = new SpaceTimeSearch(graph, HORIZON);
+        spaceTimeSearch.reset(predictor, blastMap);
+
+        BombPlanner planner = new BombPlanner(state.getDistanceTable(), blastMap, predictor, spaceTimeSearch);
+        return planner.plan(graph.getCellId(0, 1), MoveType.RIGHT, graph.getCellId(WIDTH - 1, 1), 1);
+    }
+}
@@ -0,0 +1,70 @@
+package graph;
+
+import java.util.concurrent.TimeUnit;
+
+import bench.Fixtures;
+import bot.BotState;
+import move.MoveType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * graph.ParallelParanoidSearchTest
+ *
+ * Checks that searching the root moves in parallel chooses the same
+ * move with the same value as a single ParanoidSearch. My player is put
+ * on every free cell of the fixtures, and the moves are started in both
+ * orders, so moves that fail low on the cutoff of a later move are covered.
+ *
+ * @author Marek Gargas
+ */
+public class ParallelParanoidSearchTest {
+
+    private static final int MAX_DEPTH = 3;
+
+    @Test
+    public void earlyGame() {
+        assertSameAsSequential(Fixtures.EARLY_GAME);
+    }
+
+    @Test
+    public void manyBugs() {
+        assertSameAsSequential(Fixtures.MANY_BUGS);
+    }
+
+    @Test
+    public void manySnippets() {
+        assertSameAsSequential(Fixtures.MANY_SNIPPETS);
+    }
+
+    private static void assertSameAsSequential(String fixture) {
+        String[] cells = fixture.replace("P0", ".").split(",");
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (!cells[cell].equals(".")) continue;
+            String[] field = cells.clone();
+            field[cell] = "P0";
+            BotState state = Fixtures.state(String.join(",", field));
+            for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+                assertSameAsSequential(state, depth, false, cell);
+                assertSameAsSequential(state, depth, true, cell);
+            }
+        }
+    }
+
+    private static void assertSameAsSequential(BotState state, int depth, boolean reversed, int cell) {
+        //Fresh searches, so neither has a table move from a previous depth
+        ParanoidSearch sequential = new ParanoidSearch();
+        sequential.reset(state, MoveType.PASS);
+        ParallelParanoidSearch parallel = new ParallelParanoidSearch(reversed);
+        parallel.reset(state, MoveType.PASS);
+
+        String name = String.format("cell %d, depth %d, reversed %b", cell, depth, reversed);
+        assertEquals(sequential.search(depth, deadline()), parallel.search(depth, deadline()), name);
+        assertEquals(sequential.getBestValue(), parallel.getBestValue(), name);
+    }
+
+    private static Deadline deadline() {
+        return new Deadline(TimeUnit.MINUTES.toMillis(10));
+    }
+}
@@ -0,0 +1,44 @@
+package graph;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * graph.ParanoidSearchTest
+ *
+ * Checks how wins and losses are stored in the transposition table.
+ * They are counted from the root of the search, the table counts them
+ * from the stored state, so the same state found at another ply or
+ * from another root gets the right distance.
+ *
+ * @author Marek Gargas
+ */
+public class ParanoidSearchTest {
+
+    private static final int WIN = ParanoidSearch.WIN;
+
+    @Test
+    public void otherScoresAreStoredAsTheyAre() {
+        assertEquals(1234, ParanoidSearch.toTable(1234, 5));
+        assertEquals(-1234, ParanoidSearch.fromTable(-1234, 5));
+    }
+
+    @Test
+    public void winsAreCountedFromTheStoredState() {
+        //A win 5 ticks after the root, seen at ply 2, is 3 ticks after that state
+        int stored = ParanoidSearch.toTable(WIN - 5, 2);
+        assertEquals(WIN - 3, stored);
+        assertEquals(WIN - 5, ParanoidSearch.fromTable(stored, 2));
+        //Reaching the same state at ply 4 puts the win 7 ticks after the root
+        assertEquals(WIN - 7, ParanoidSearch.fromTable(stored, 4));
+    }
+
+    @Test
+    public void lossesAreCountedFromTheStoredState() {
+        int stored = ParanoidSearch.toTable(-WIN + 5, 2);
+        assertEquals(-WIN + 3, stored);
+        assertEquals(-WIN + 5, ParanoidSearch.fromTable(stored, 2));
+        assertEquals(-WIN + 7, ParanoidSearch.fromTable(stored, 4));
+    }
+}
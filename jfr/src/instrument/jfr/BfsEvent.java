@@ -0,0 +1,30 @@
+package instrument.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * instrument.jfr.BfsEvent
+ *
+ * Flight Recorder event of a single BFS run
+ *
+ * @author Marek Gargas
+ */
+@Name("botchallenges.Bfs")
+@Label("BFS")
+@Category("BotChallenges")
+@Description("A single BFS run")
+public class BfsEvent extends Event {
+
+    @Label("Round")
+    public int round;
+
+    @Label("Nodes Expanded")
+    public int nodesExpanded;
+
+    @Label("Targets Found")
+    public int targetsFound;
+}
@@ -0,0 +1,36 @@
+package instrument.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * instrument.jfr.DecisionEvent
+ *
+ * Flight Recorder event of the Solver choosing a move, from the greedy
+ * selection to the last finished depth of the search
+ *
+ * @author Marek Gargas
+ */
+@Name("botchallenges.Decision")
+@Label("Solver Decision")
+@Category("BotChallenges")
+@Description("Choosing of a move by the Solver")
+public class DecisionEvent extends Event {
+
+    @Label("Round")
+    public int round;
+
+    @Label("Move")
+    public String move;
+
+    @Label("Depth")
+    @Description("Deepest finished depth of the search, 0 if only the greedy move is known")
+    public int depth;
+
+    @Label("Pondered")
+    @Description("Whether the search continued from pondering")
+    public boolean pondered;
+}
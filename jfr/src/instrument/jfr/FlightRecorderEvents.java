@@ -0,0 +1,130 @@
+package instrument.jfr;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.text.ParseException;
+
+import instrument.EventKind;
+import instrument.EventRecorder;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+/**
+ * instrument.jfr.FlightRecorderEvents
+ *
+ * Flight Recorder implementation of the events of the bot, loaded
+ * by instrument.Events when this module is on the class path.
+ * An event is only created when a running recording has its type
+ * enabled. With -Dbot.jfr=file the recording is started here with
+ * the profile settings and written to the file when the bot exits;
+ * unlike -XX:StartFlightRecording it doesn't print anything to stdout,
+ * where the engine would read it as a move.
+ *
+ * @author Marek Gargas
+ */
+public class FlightRecorderEvents implements EventRecorder {
+
+    private static final Class<?>[] EVENT_CLASSES = new Class<?>[EventKind.values().length];
+
+    static {
+        EVENT_CLASSES[EventKind.PARSE.ordinal()] = ParseEvent.class;
+        EVENT_CLASSES[EventKind.GRAPH_BUILD.ordinal()] = GraphBuildEvent.class;
+        EVENT_CLASSES[EventKind.BFS.ordinal()] = BfsEvent.class;
+        EVENT_CLASSES[EventKind.DECISION.ordinal()] = DecisionEvent.class;
+        EVENT_CLASSES[EventKind.PROTOCOL.ordinal()] = ProtocolEvent.class;
+    }
+
+    private final EventType[] types = new EventType[EVENT_CLASSES.length];
+
+    public FlightRecorderEvents() throws IOException, ParseException
+    {
+        if(!FlightRecorder.isAvailable()) throw new IllegalStateException("Flight Recorder is not available");
+        for(int i=0;i<types.length;i++) types[i] = EventType.getEventType(EVENT_CLASSES[i].asSubclass(Event.class));
+        String file = System.getProperty("bot.jfr");
+        if(file != null) startRecording(file);
+    }
+
+    private static void startRecording(String file) throws IOException, ParseException
+    {
+        Recording recording = new Recording(Configuration.getConfiguration("profile"));
+        recording.setName("bot");
+        recording.setDestination(Paths.get(file));
+        recording.setDumpOnExit(true);
+        recording.start();
+    }
+
+    @Override
+    public Object begin(EventKind kind)
+    {
+        if(!types[kind.ordinal()].isEnabled()) return null;
+        Event event;
+        switch(kind)
+        {
+            case PARSE: event = new ParseEvent(); break;
+            case GRAPH_BUILD: event = new GraphBuildEvent(); break;
+            case BFS: event = new BfsEvent(); break;
+            case DECISION: event = new DecisionEvent(); break;
+            default: event = new ProtocolEvent(); break;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitParse(Object event, int round, int length)
+    {
+        ParseEvent parseEvent = (ParseEvent) event;
+        if(!parseEvent.shouldCommit()) return;
+        parseEvent.round = round;
+        parseEvent.length = length;
+        parseEvent.commit();
+    }
+
+    @Override
+    public void commitGraphBuild(Object event, int round, String graph, int cells)
+    {
+        GraphBuildEvent graphEvent = (GraphBuildEvent) event;
+        if(!graphEvent.shouldCommit()) return;
+        graphEvent.round = round;
+        graphEvent.graph = graph;
+        graphEvent.cells = cells;
+        graphEvent.commit();
+    }
+
+    @Override
+    public void commitBfs(Object event, int round, int nodesExpanded, int targetsFound)
+    {
+        BfsEvent bfsEvent = (BfsEvent) event;
+        if(!bfsEvent.shouldCommit()) return;
+        bfsEvent.round = round;
+        bfsEvent.nodesExpanded = nodesExpanded;
+        bfsEvent.targetsFound = targetsFound;
+        bfsEvent.commit();
+    }
+
+    @Override
+    public void commitDecision(Object event, int round, String move, int depth, boolean pondered)
+    {
+        DecisionEvent decisionEvent = (DecisionEvent) event;
+        if(!decisionEvent.shouldCommit()) return;
+        decisionEvent.round = round;
+        decisionEvent.move = move;
+        decisionEvent.depth = depth;
+        decisionEvent.pondered = pondered;
+        decisionEvent.commit();
+    }
+
+    @Override
+    public void commitProtocol(Object event, int round, String direction, int bytes)
+    {
+        ProtocolEvent protocolEvent = (ProtocolEvent) event;
+        if(!protocolEvent.shouldCommit()) return;
+        protocolEvent.round = round;
+        protocolEvent.direction = direction;
+        protocolEvent.bytes = bytes;
+        protocolEvent.commit();
+    }
+}
@@ -0,0 +1,31 @@
+package instrument.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * instrument.jfr.GraphBuildEvent
+ *
+ * Flight Recorder event of building a graph of the field in GraphParser
+ *
+ * @author Marek Gargas
+ */
+@Name("botchallenges.GraphBuild")
+@Label("Graph Build")
+@Category("BotChallenges")
+@Description("Building of a graph of the field")
+public class GraphBuildEvent extends Event {
+
+    @Label("Round")
+    public int round;
+
+    @Label("Graph")
+    @Description("Grid graph or the map of vertices")
+    public String graph;
+
+    @Label("Cells")
+    public int cells;
+}
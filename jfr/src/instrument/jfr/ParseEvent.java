@@ -0,0 +1,27 @@
+package instrument.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * instrument.jfr.ParseEvent
+ *
+ * Flight Recorder event of parsing the field sent by the engine
+ *
+ * @author Marek Gargas
+ */
+@Name("botchallenges.Parse")
+@Label("Field Parse")
+@Category("BotChallenges")
+@Description("Parsing of the field sent by the engine")
+public class ParseEvent extends Event {
+
+    @Label("Round")
+    public int round;
+
+    @Label("Field Length")
+    public int length;
+}
@@ -0,0 +1,32 @@
+package instrument.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * instrument.jfr.ProtocolEvent
+ *
+ * Flight Recorder event of reading or writing a line of the engine protocol.
+ * Reading includes waiting for the engine to send the line.
+ *
+ * @author Marek Gargas
+ */
+@Name("botchallenges.Protocol")
+@Label("Protocol I/O")
+@Category("BotChallenges")
+@Description("Reading or writing of a line of the engine protocol")
+public class ProtocolEvent extends Event {
+
+    @Label("Round")
+    public int round;
+
+    @Label("Direction")
+    @Description("read or write")
+    public String direction;
+
+    @Label("Bytes")
+    public int bytes;
+}
@@ -19,8 +19,18 @@
 
 package bot;
 
-import java.util.Scanner;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
 
+import graph.Deadline;
+import instrument.EventKind;
+import instrument.Events;
+import instrument.Instrumentation;
+import instrument.Phase;
 import move.Move;
 import move.MoveType;
 import player.Player;
@@ -35,56 +45,155 @@ import player.Player;
  */
 public class BotParser {
 
-    private Scanner scan;
+    private ProtocolReader reader;
+    private ProtocolWriter writer;
+    private ProtocolWriter recorder;
+    private long recordingStart;
+    private long[] moveLatencies = new long[256]; // nanoseconds from reading action move to answering it
+    private int[] moveDepths = new int[256]; // depth the search finished for every answered move
+    private int moveCount;
+    private boolean fixedDepth;
     private BotStarter bot;
+    private MoveWatchdog watchdog;
+    private boolean ponder;
+    private Deadline ponderDeadline;
 
     private BotState currentState;
 
     BotParser(BotStarter bot) {
-        this.scan = new Scanner(System.in);
+        this(bot, false);
+    }
+
+    /**
+     * @param bot Bot that makes the moves
+     * @param ponder Whether to start searching as soon as a new field arrives
+     */
+    BotParser(BotStarter bot, boolean ponder) {
+        this(bot, ponder, System.in, new FileOutputStream(FileDescriptor.out));
+    }
+
+    /**
+     * @param bot Bot that makes the moves
+     * @param ponder Whether to start searching as soon as a new field arrives
+     * @param input Stream the engine writes to
+     * @param output Stream the answers are written to
+     */
+    BotParser(BotStarter bot, boolean ponder, InputStream input, OutputStream output) {
+        this.reader = new ProtocolReader(input);
+        this.writer = new ProtocolWriter(output);
         this.bot = bot;
+        this.watchdog = new MoveWatchdog();
+        this.ponder = ponder;
         this.currentState = new BotState();
     }
 
+    /**
+     * Writes every line of the engine's input to given stream, prefixed
+     * with the microseconds since recording started. Every line is flushed,
+     * because the engine kills the bot when the game ends.
+     * @param output Stream the recording is written to
+     */
+    void record(OutputStream output) {
+        this.recorder = new ProtocolWriter(output);
+        this.recordingStart = System.nanoTime();
+    }
+
     /**
      *
      * Run will keep reading output from the engine.
      * Will either update the bot state or get actions.
+     * Lines are compared token by token, only settings
+     * are turned into strings.
      */
     void run() {
-        while (scan.hasNextLine()) {
-            String line = scan.nextLine();
-
-            if (line.length() == 0) continue;
-
-            String[] parts = line.split(" ");
-            switch (parts[0]) {
-                case "settings":
-                    parseSettings(parts[1], parts[2]);
-                    break;
-                case "update":
-                    if (parts[1].equals("game")) {
-                        parseGameData(parts[2], parts[3]);
+        try {
+            while (readLine()) {
+                if (this.recorder != null) {
+                    this.recorder.append((System.nanoTime() - this.recordingStart) / 1000).append(" ")
+                            .append(this.reader.getLine(), 0, this.reader.getLineLength()).endLine();
+                }
+                if (this.reader.tokenEquals(0, "settings")) {
+                    parseSettings(this.reader.getToken(1), this.reader.getToken(2));
+                } else if (this.reader.tokenEquals(0, "update")) {
+                    if (this.reader.tokenEquals(1, "game")) {
+                        parseGameData();
                     } else {
-                        parsePlayerData(parts[1], parts[2], parts[3]);
-                    }
-                    break;
-                case "action":
-                    if (parts[1].equals("character")) {  // return character
-                        System.out.println(this.bot.getCharacter().toString());
-                    } else if (parts[1].equals("move")) {  // return move
-                        Move move = this.bot.doMove(this.currentState);
-                        if (move != null) {
-                            System.out.println(move.toString());
-                        } else {
-                            System.out.println(MoveType.PASS.toString());
-                        }
+                        parsePlayerData();
                     }
-                    break;
-                default:
+                } else if (this.reader.tokenEquals(0, "action")) {
+                    parseAction();
+                } else {
                     System.err.println("Unknown command");
-                    break;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println(String.format("Cannot communicate with the engine: %s", e.getMessage()));
+        }
+        stopPondering();
+
+        if (this.watchdog.getOverrunCount() > 0) {
+            System.err.println(String.format("Solver overran %d of %d moves",
+                    this.watchdog.getOverrunCount(), this.watchdog.getMoveCount()));
+        }
+    }
+
+    /**
+     * Reads the next line of the engine, the Flight Recorder event
+     * includes the time spent waiting for it
+     * @return False if the input has ended
+     */
+    private boolean readLine() throws IOException {
+        Object event = Events.begin(EventKind.PROTOCOL);
+        boolean read = this.reader.nextLine();
+        if (read) {
+            Events.commitProtocol(event, this.currentState.getRoundNumber(), "read", this.reader.getLineLength());
+        }
+        return read;
+    }
+
+    /**
+     * Sends the line appended to the writer to the engine
+     */
+    private void sendLine() throws IOException {
+        Object event = Events.begin(EventKind.PROTOCOL);
+        int bytes = this.writer.getLength() + 1;
+        this.writer.endLine();
+        Events.commitProtocol(event, this.currentState.getRoundNumber(), "write", bytes);
+    }
+
+    /**
+     * Answers an action request of the engine
+     * @throws IOException when the answer can't be written
+     */
+    private void parseAction() throws IOException {
+        if (this.reader.getTokenCount() > 2) {
+            this.currentState.setTimebank(this.reader.parseInt(2));
+        }
+        if (this.reader.tokenEquals(1, "character")) {  // return character
+            this.writer.append(this.bot.getCharacter().toString());
+            sendLine();
+        } else if (this.reader.tokenEquals(1, "move")) {  // return move
+            long start = System.nanoTime();
+            Deadline deadline = this.fixedDepth ? Deadline.untilCancelled() : Deadline.forMove(this.currentState);
+            stopPondering();
+            Move fallback = this.bot.getFallbackMove(this.currentState);
+            PlayerSnapshot players = new PlayerSnapshot(this.currentState);
+            Move move = this.watchdog.run(
+                    () -> this.bot.doMove(this.currentState, players, deadline), deadline, fallback);
+            if (move != null) {
+                this.writer.append(move);
+                sendLine();
+            } else {
+                this.writer.append(MoveType.PASS.toString());
+                sendLine();
             }
+            if (this.moveCount == this.moveLatencies.length) {
+                this.moveLatencies = Arrays.copyOf(this.moveLatencies, this.moveCount * 2);
+                this.moveDepths = Arrays.copyOf(this.moveDepths, this.moveCount * 2);
+            }
+            this.moveDepths[this.moveCount] = this.bot.getLastDepth();
+            this.moveLatencies[this.moveCount++] = System.nanoTime() - start;
+            Instrumentation.stop(Phase.MOVE, start);
         }
     }
 
@@ -140,64 +249,117 @@ public class BotParser {
     }
 
     /**
-     * Parse data about the game given by the engine
-     * @param key Type of game data given
-     * @param value Value
+     * Parse data about the game given by the engine,
+     * the field is parsed straight from the bytes of the line
      */
-    private void parseGameData(String key, String value) {
+    private void parseGameData() {
         try {
-            switch(key) {
-                case "round":
-                    this.currentState.setRoundNumber(Integer.parseInt(value));
-                    break;
-                case "field":
+            if (this.reader.tokenEquals(2, "round")) {
+                this.currentState.setRoundNumber(this.reader.parseInt(3));
+                Instrumentation.setRound(this.currentState.getRoundNumber());
+            } else if (this.reader.tokenEquals(2, "field")) {
+                stopPondering();
+                this.watchdog.awaitIdle(); // an overrunning solver may still read the field
+                if (!this.currentState.getField().isInitialized()) {
                     this.currentState.getField().initField();
-                    this.currentState.getField().parseFromString(value);
-                    break;
-                default:
-                    System.err.println(String.format(
-                            "Cannot parse game data input with key '%s'", key));
+                }
+                Object event = Events.begin(EventKind.PARSE);
+                long start = Instrumentation.start();
+                this.currentState.getField().parseFromBytes(this.reader.getLine(),
+                        this.reader.getTokenStart(3), this.reader.getTokenEnd(3));
+                Instrumentation.stop(Phase.PARSE, start);
+                Events.commitParse(event, this.currentState.getRoundNumber(),
+                        this.reader.getTokenEnd(3) - this.reader.getTokenStart(3));
+                this.currentState.getDistanceTable(); // built on the first field, so moves don't pay for it
+                startPondering();
+            } else {
+                System.err.println(String.format(
+                        "Cannot parse game data input with key '%s'", this.reader.getToken(2)));
             }
         } catch (Exception e) {
             System.err.println(String.format(
-                    "Cannot parse game data value '%s' for key '%s'", value, key));
+                    "Cannot parse game data value '%s' for key '%s'", this.reader.getToken(3), this.reader.getToken(2)));
             e.printStackTrace();
         }
     }
 
+    /**
+     * Starts searching the new field in the background
+     * until the move is asked for.
+     */
+    private void startPondering() {
+        if (!this.ponder) return;
+        Deadline deadline = Deadline.untilCancelled();
+        this.ponderDeadline = deadline;
+        PlayerSnapshot players = new PlayerSnapshot(this.currentState);
+        this.watchdog.runInBackground(() -> this.bot.ponder(this.currentState, players, deadline));
+    }
+
+    private void stopPondering() {
+        if (this.ponderDeadline != null) {
+            this.ponderDeadline.cancel();
+            this.ponderDeadline = null;
+        }
+    }
+
     /**
      * Parse data about given player that the engine has sent
-     * @param playerName Player name that this data is about
-     * @param key Type of player data given
-     * @param value Value
      */
-    private void parsePlayerData(String playerName, String key, String value) {
-        Player player = this.currentState.getPlayers().get(playerName);
+    private void parsePlayerData() {
+        Player player = null;
+        for (Player knownPlayer : this.currentState.getPlayers().values()) {
+            if (this.reader.tokenEquals(1, knownPlayer.getName())) player = knownPlayer;
+        }
 
         if (player == null) {
-            System.err.println(String.format("Could not find player with name %s", playerName));
+            System.err.println(String.format("Could not find player with name %s", this.reader.getToken(1)));
             return;
         }
 
         try {
-            switch(key) {
-                case "bombs":
-                    player.setBombs(Integer.parseInt(value));
-                    break;
-                case "snippets":
-                    player.setSnippets(Integer.parseInt(value));
-                    break;
-                default:
-                    System.err.println(String.format(
-                            "Cannot parse %s data input with key '%s'", playerName, key));
+            if (this.reader.tokenEquals(2, "bombs")) {
+                player.setBombs(this.reader.parseInt(3));
+            } else if (this.reader.tokenEquals(2, "snippets")) {
+                player.setSnippets(this.reader.parseInt(3));
+            } else {
+                System.err.println(String.format(
+                        "Cannot parse %s data input with key '%s'", player.getName(), this.reader.getToken(2)));
             }
         } catch (Exception e) {
             System.err.println(String.format(
-                    "Cannot parse %s data value '%s' for key '%s'", playerName, value, key));
+                    "Cannot parse %s data value '%s' for key '%s'",
+                    player.getName(), this.reader.getToken(3), this.reader.getToken(2)));
             e.printStackTrace();
         }
     }
 
+    /**
+     * Returns how many nanoseconds every answered move took,
+     * from reading the action to writing the answer
+     */
+    long[] getMoveLatencies() {
+        return Arrays.copyOf(this.moveLatencies, this.moveCount);
+    }
+
+    /**
+     * Returns the depth the search finished for every answered move,
+     * in the same order as the latencies
+     */
+    int[] getMoveDepths() {
+        return Arrays.copyOf(this.moveDepths, this.moveCount);
+    }
+
+    /**
+     * Makes every move search exactly to the given depth, ignoring the
+     * timebank, so the latencies measure a fixed amount of work.
+     * Pondering should be off, it would do the work before the move is asked for.
+     * @param depth Depth of every search
+     */
+    void setFixedDepth(int depth) {
+        this.fixedDepth = true;
+        this.bot.setMaxDepth(depth);
+    }
+
     public BotState getCurrentState() {
         return currentState;
     }
@@ -20,10 +20,14 @@
 package bot;
 
 import java.awt.*;
+import java.io.FileOutputStream;
 import java.util.*;
+import java.util.List;
 import java.util.Random;
 
 import graph.BFS;
+import graph.BombPlanner;
+import graph.Deadline;
 import graph.GraphParser;
 import graph.Solver;
 import move.Move;
@@ -42,8 +46,10 @@ import player.Player;
 public class BotStarter {
 
     private Random random;
+    private Solver solver;
+    private int maxDepth; // 0 searches as deep as the time allows
 
-    private BotStarter() {
+    BotStarter() {
         this.random = new Random();
     }
 
@@ -62,12 +68,87 @@ public class BotStarter {
      * @return A Move object
      */
     public Move doMove(BotState state) {
-        Solver solver = new Solver(state);
-        return new Move(solver.getMove());
+        return doMove(state, Deadline.forMove(state));
+    }
+
+    /**
+     * Does a move action that has to be finished before the deadline.
+     * @param state The current state of the game
+     * @param deadline Deadline of the move
+     * @return A Move object
+     */
+    public Move doMove(BotState state, Deadline deadline) {
+        return doMove(state, new PlayerSnapshot(state), deadline);
+    }
+
+    /**
+     * Does a move action on another thread than the one updating the state.
+     * @param state The current state of the game
+     * @param players Snippets and bombs of the players, taken by the thread that updates them
+     * @param deadline Deadline of the move
+     * @return A Move object
+     */
+    public Move doMove(BotState state, PlayerSnapshot players, Deadline deadline) {
+        createSolver(state);
+        MoveType moveType = this.solver.getMove(players, deadline);
+        int bombTicks = this.solver.getBombTicks(players, moveType);
+        return bombTicks == BombPlanner.NO_BOMB ? new Move(moveType) : new Move(moveType, bombTicks);
+    }
+
+    /**
+     * Starts searching the current state before the move is asked for,
+     * the result is used by the next doMove.
+     * @param state The current state of the game
+     * @param players Snippets and bombs of the players, taken by the thread that updates them
+     * @param deadline Deadline that is cancelled when the move is asked for
+     */
+    public void ponder(BotState state, PlayerSnapshot players, Deadline deadline) {
+        createSolver(state);
+        this.solver.ponder(players, deadline);
+    }
+
+    private void createSolver(BotState state) {
+        if (this.solver == null) {
+            this.solver = new Solver(state);
+            if (this.maxDepth > 0) this.solver.setMaxDepth(this.maxDepth);
+        }
+    }
+
+    /**
+     * Makes every move search exactly to the given depth, used by replays
+     * that measure compute time instead of the time budget
+     * @param maxDepth Depth of every search
+     */
+    void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+        if (this.solver != null) this.solver.setMaxDepth(maxDepth);
+    }
+
+    /**
+     * Returns the depth the last doMove finished, 0 before the first move
+     */
+    int getLastDepth() {
+        return this.solver != null ? this.solver.getLastDepth() : 0;
+    }
+
+    /**
+     * Returns a move that is cheap to compute, used when
+     * doMove doesn't finish in time.
+     * @param state The current state of the game
+     * @return A Move object
+     */
+    public Move getFallbackMove(BotState state) {
+        return new Move(Solver.getFallbackMove(state));
     }
 
     public static void main(String[] args) throws Exception {
-        BotParser parser = new BotParser(new BotStarter());
+        List<String> arguments = Arrays.asList(args);
+        boolean ponder = !arguments.contains("--no-ponder");
+        BotParser parser = new BotParser(new BotStarter(), ponder);
+        int record = arguments.indexOf("--record");
+        if (record != -1 && record + 1 < args.length) {
+            parser.record(new FileOutputStream(args[record + 1]));
+        }
         parser.run();
     }
 
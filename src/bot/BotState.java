@@ -22,6 +22,9 @@ package bot;
 import java.util.HashMap;
 
 import field.Field;
+import graph.DistanceTable;
+import graph.GraphParser;
+import graph.GridGraph;
 import player.Player;
 
 /**
@@ -42,6 +45,8 @@ public class BotState {
     private HashMap<String, Player> players;
 
     private Field field;
+    private GridGraph gridGraph;
+    private DistanceTable distanceTable;
 
     BotState() {
         this.field = new Field();
@@ -88,6 +93,31 @@ public class BotState {
         return this.field;
     }
 
+    /**
+     * Returns the static graph of the field. It is only built again
+     * when the walls or gates of the field have changed.
+     * @return Graph of the current field layout
+     */
+    public GridGraph getGridGraph() {
+        if (this.gridGraph == null || this.gridGraph.getLayoutVersion() != this.field.getLayoutVersion()) {
+            this.gridGraph = new GraphParser(this.field).getGridGraph();
+        }
+        return this.gridGraph;
+    }
+
+    /**
+     * Returns distances between all walkable cells of the field.
+     * It is only built again together with the grid graph.
+     * @return Distance table of the current field layout
+     */
+    public DistanceTable getDistanceTable() {
+        GridGraph graph = getGridGraph();
+        if (this.distanceTable == null || this.distanceTable.getGraph() != graph) {
+            this.distanceTable = new DistanceTable(graph);
+        }
+        return this.distanceTable;
+    }
+
     public String getMyName() {
         return this.myName;
     }
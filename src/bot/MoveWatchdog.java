@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package bot;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import graph.Deadline;
+import move.Move;
+
+/**
+ * bot.MoveWatchdog
+ *
+ * Runs the solver on a worker thread and waits for it only
+ * until the deadline of the move. When the solver takes longer,
+ * a fallback move is returned and the overrun is counted.
+ * Background work like pondering runs on the same thread,
+ * so it never runs at the same time as a move.
+ *
+ * @author Marek Gargas
+ */
+public class MoveWatchdog {
+
+    private static final long GRACE_MS = 10;
+
+    private ExecutorService worker;
+    private Future<Move> lastTask;
+    private int moveCount;
+    private int overrunCount;
+
+    MoveWatchdog() {
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "solver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs the task and returns its move, or the fallback move
+     * if the task doesn't finish before the deadline.
+     * @param task Task that computes the move
+     * @param deadline Deadline of the move, cancelled on overrun
+     * @param fallback Move to return when the task is too slow or fails
+     * @return Move to send to the engine
+     */
+    Move run(Callable<Move> task, Deadline deadline, Move fallback) {
+        awaitIdle();
+        this.moveCount++;
+        this.lastTask = this.worker.submit(task);
+
+        try {
+            Move move = this.lastTask.get(deadline.getRemainingMillis() + GRACE_MS, TimeUnit.MILLISECONDS);
+            return move != null ? move : fallback;
+        } catch (TimeoutException e) {
+            deadline.cancel();
+            this.overrunCount++;
+            System.err.println(String.format("Solver overrun after %d ms, using fallback move (%d overruns in %d moves)",
+                    deadline.getElapsedMillis(), this.overrunCount, this.moveCount));
+        } catch (ExecutionException e) {
+            System.err.println("Solver failed, using fallback move");
+            e.getCause().printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return fallback;
+    }
+
+    /**
+     * Runs the task in the background without waiting for it.
+     * It has to stop by itself before the next move or field update.
+     * Nobody waits for its result, so it reports its own failure.
+     * @param task Task to run
+     */
+    void runInBackground(Runnable task) {
+        awaitIdle();
+        this.lastTask = this.worker.submit(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                System.err.println("Background task failed");
+                e.printStackTrace();
+            }
+        }, null);
+    }
+
+    /**
+     * Waits until the previous task has finished, so the state
+     * is not changed while the solver is still reading it.
+     */
+    void awaitIdle() {
+        if (this.lastTask == null) return;
+        try {
+            this.lastTask.get();
+        } catch (ExecutionException e) {
+            // only a task of run can fail here, run reported it or its overrun
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.lastTask = null;
+    }
+
+    public int getMoveCount() {
+        return this.moveCount;
+    }
+
+    public int getOverrunCount() {
+        return this.overrunCount;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package bot;
+
+import java.util.Arrays;
+
+import player.Player;
+
+/**
+ * bot.PlayerSnapshot
+ *
+ * Snippets and bombs of both players at one moment, indexed by
+ * their id on the field. The parser updates the players while
+ * a search may be pondering, so the search gets a snapshot taken
+ * on the parser's thread instead of reading the players itself.
+ *
+ * @author Marek Gargas
+ */
+public final class PlayerSnapshot {
+
+    private final int[] snippets = new int[2];
+    private final int[] bombs = new int[2];
+
+    /**
+     * Copies the players of the state, must be called on the thread that updates them
+     * @param state Current state of the game
+     */
+    public PlayerSnapshot(BotState state) {
+        for (Player player : state.getPlayers().values()) {
+            int id = player.getName().equals(state.getMyName())
+                    ? state.getField().getMyId() : state.getField().getOpponentId();
+            if (id < 0 || id > 1) continue;
+            this.snippets[id] = player.getSnippets();
+            this.bombs[id] = player.getBombs();
+        }
+    }
+
+    /**
+     * Returns snippets of both players, index is the id of the player
+     */
+    public int[] getSnippets() {
+        return this.snippets.clone();
+    }
+
+    /**
+     * Returns bombs of both players, index is the id of the player
+     */
+    public int[] getBombs() {
+        return this.bombs.clone();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof PlayerSnapshot)) return false;
+        PlayerSnapshot snapshot = (PlayerSnapshot) other;
+        return Arrays.equals(this.snippets, snapshot.snippets) && Arrays.equals(this.bombs, snapshot.bombs);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(this.snippets) + Arrays.hashCode(this.bombs);
+    }
+}
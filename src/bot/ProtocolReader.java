@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package bot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * bot.ProtocolReader
+ *
+ * Reads the engine's input line by line straight from the bytes
+ * of a stream. A line is split into space separated tokens by
+ * remembering where they start and end, so commands can be compared
+ * and numbers parsed without creating strings. The last token
+ * gets the rest of the line. The line buffer is reused and
+ * only grows when a longer line arrives.
+ *
+ * @author Marek Gargas
+ */
+public class ProtocolReader {
+
+    private static final int MAX_TOKENS = 4; // "update game field <field>" is the longest command
+
+    private InputStream input;
+    private byte[] buffer = new byte[1 << 16];
+    private int bufferStart;
+    private int bufferEnd;
+
+    private byte[] line = new byte[1 << 12];
+    private int lineLength;
+    private int[] tokenStarts = new int[MAX_TOKENS];
+    private int[] tokenEnds = new int[MAX_TOKENS];
+    private int tokenCount;
+
+    ProtocolReader(InputStream input) {
+        this.input = input;
+    }
+
+    /**
+     * Reads the next line that is not empty and splits it into tokens
+     * @return False if the input has ended
+     * @throws IOException when the input can't be read
+     */
+    public boolean nextLine() throws IOException {
+        do {
+            if (!readLine()) return false;
+        } while (this.lineLength == 0);
+        tokenize();
+        return true;
+    }
+
+    private boolean readLine() throws IOException {
+        this.lineLength = 0;
+        while (true) {
+            if (this.bufferStart == this.bufferEnd) {
+                int read = this.input.read(this.buffer, 0, this.buffer.length);
+                if (read <= 0) return this.lineLength > 0;
+                this.bufferStart = 0;
+                this.bufferEnd = read;
+            }
+            int end = this.bufferStart;
+            while (end < this.bufferEnd && this.buffer[end] != '\n') end++;
+            append(this.buffer, this.bufferStart, end);
+            boolean lineEnded = end < this.bufferEnd;
+            this.bufferStart = lineEnded ? end + 1 : end;
+            if (lineEnded) {
+                if (this.lineLength > 0 && this.line[this.lineLength - 1] == '\r') this.lineLength--;
+                return true;
+            }
+        }
+    }
+
+    private void append(byte[] bytes, int start, int end) {
+        int length = end - start;
+        if (this.lineLength + length > this.line.length) {
+            this.line = Arrays.copyOf(this.line, Math.max(this.line.length * 2, this.lineLength + length));
+        }
+        System.arraycopy(bytes, start, this.line, this.lineLength, length);
+        this.lineLength += length;
+    }
+
+    private void tokenize() {
+        this.tokenCount = 0;
+        int position = 0;
+        while (position < this.lineLength && this.tokenCount < MAX_TOKENS) {
+            while (position < this.lineLength && this.line[position] == ' ') position++;
+            if (position == this.lineLength) break;
+            int end = position;
+            if (this.tokenCount < MAX_TOKENS - 1) {
+                while (end < this.lineLength && this.line[end] != ' ') end++;
+            } else {
+                end = this.lineLength;
+            }
+            this.tokenStarts[this.tokenCount] = position;
+            this.tokenEnds[this.tokenCount] = end;
+            this.tokenCount++;
+            position = end;
+        }
+    }
+
+    public int getTokenCount() {
+        return this.tokenCount;
+    }
+
+    /**
+     * Returns whether a token is equal to given ASCII text
+     * @param token Index of the token
+     * @param text Text to compare with
+     * @return True if the token exists and has the same characters
+     */
+    public boolean tokenEquals(int token, String text) {
+        if (token >= this.tokenCount) return false;
+        int start = this.tokenStarts[token];
+        int length = this.tokenEnds[token] - start;
+        if (length != text.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (this.line[start + i] != text.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses a token as a non negative decimal number
+     * @param token Index of the token
+     * @return The number
+     * @throws NumberFormatException when the token is not a number
+     */
+    public int parseInt(int token) {
+        if (token >= this.tokenCount) throw new NumberFormatException("Missing number");
+        int value = 0;
+        for (int i = this.tokenStarts[token]; i < this.tokenEnds[token]; i++) {
+            int digit = this.line[i] - '0';
+            if (digit < 0 || digit > 9) throw new NumberFormatException(getToken(token));
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Returns a token as a string, meant for rare commands like settings
+     * @param token Index of the token
+     * @return Text of the token, empty if it doesn't exist
+     */
+    public String getToken(int token) {
+        if (token >= this.tokenCount) return "";
+        return new String(this.line, this.tokenStarts[token],
+                this.tokenEnds[token] - this.tokenStarts[token], StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns the buffer of the current line, valid until the next line is read
+     */
+    public byte[] getLine() {
+        return this.line;
+    }
+
+    public int getLineLength() {
+        return this.lineLength;
+    }
+
+    public int getTokenStart(int token) {
+        return this.tokenStarts[token];
+    }
+
+    public int getTokenEnd(int token) {
+        return this.tokenEnds[token];
+    }
+}
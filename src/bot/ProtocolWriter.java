@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 riddles.io (developers@riddles.io)
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *     For the full copyright and license information, please view the LICENSE
+ *     file that was distributed with this source code.
+ */
+
+package bot;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import move.Move;
+import move.MoveType;
+
+/**
+ * bot.ProtocolWriter
+ *
+ * Writes answers to the engine through one reusable byte buffer.
+ * Text is appended as ASCII without encoding it first and the
+ * stream is written and flushed once per finished line.
+ *
+ * @author Marek Gargas
+ */
+public class ProtocolWriter {
+
+    private OutputStream output;
+    private byte[] buffer = new byte[64];
+    private int length;
+
+    ProtocolWriter(OutputStream output) {
+        this.output = output;
+    }
+
+    public ProtocolWriter append(String text) {
+        ensureCapacity(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            this.buffer[this.length++] = (byte) text.charAt(i);
+        }
+        return this;
+    }
+
+    public ProtocolWriter append(byte[] bytes, int start, int end) {
+        ensureCapacity(end - start);
+        System.arraycopy(bytes, start, this.buffer, this.length, end - start);
+        this.length += end - start;
+        return this;
+    }
+
+    public ProtocolWriter append(long value) {
+        if (value < 0) {
+            ensureCapacity(1);
+            this.buffer[this.length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) digits++;
+        ensureCapacity(digits);
+        for (int i = this.length + digits - 1; i >= this.length; i--) {
+            this.buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        this.length += digits;
+        return this;
+    }
+
+    /**
+     * Appends a move in the format of the engine
+     * @param move Move to write
+     * @return This writer
+     */
+    public ProtocolWriter append(Move move) {
+        append(move.getMoveType().toString());
+        if (move.getMoveType() != MoveType.PASS && move.getBombTicks() != null) {
+            append(";drop_bomb ").append(move.getBombTicks());
+        }
+        return this;
+    }
+
+    /**
+     * Ends the line and sends it to the engine
+     * @throws IOException when the output can't be written
+     */
+    public void endLine() throws IOException {
+        ensureCapacity(1);
+        this.buffer[this.length++] = '\n';
+        this.output.write(this.buffer, 0, this.length);
+        this.output.flush();
+        this.length = 0;
+    }
+
+    /**
+     * Returns the length of the line appended so far, without its end
+     */
+    public int getLength() {
+        return this.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (this.length + extra > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.length + extra));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package field;
+
+/**
+ * field.BugMover
+ *
+ * Decides where a bug goes in the next tick of a GameSimulator.
+ *
+ * @author Marek Gargas
+ */
+public interface BugMover {
+
+    /**
+     * Returns the cell the bug moves to in the next tick
+     * @param simulator Simulator with the current state
+     * @param bug Index of the bug
+     * @return Id of the next cell of the bug
+     */
+    int nextCell(GameSimulator simulator, int bug);
+}
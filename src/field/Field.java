@@ -35,36 +35,86 @@ import move.MoveType;
  */
 public class Field {
 
-    protected final String EMTPY_FIELD = ".";
-    protected final String BLOCKED_FIELD = "x";
-
-    private String myId;
-    private String opponentId;
+    /* Bit flags that make up a single cell of the field */
+    public static final int WALL = 1;
+    public static final int GATE_LEFT = 1 << 1;
+    public static final int GATE_RIGHT = 1 << 2;
+    public static final int GATE_UP = 1 << 3;
+    public static final int GATE_DOWN = 1 << 4;
+    public static final int GATE_MASK = GATE_LEFT | GATE_RIGHT | GATE_UP | GATE_DOWN;
+    public static final int PLAYER_0 = 1 << 5;
+    public static final int PLAYER_1 = 1 << 6;
+    public static final int BUG = 1 << 7;
+    public static final int BUG_TYPE_SHIFT = 8; // one bit for each enemy AI type 0 - 3
+    public static final int BUG_TYPE_MASK = 0xF << BUG_TYPE_SHIFT;
+    public static final int SNIPPET = 1 << 12;
+    public static final int BOMB = 1 << 13;
+    public static final int BOMB_TICKS_SHIFT = 14; // ticks until a dropped bomb explodes, 0 if none
+    public static final int BOMB_TICKS_MASK = 0x7 << BOMB_TICKS_SHIFT;
+    public static final int SPAWN = 1 << 17;
+    public static final int LAYOUT_MASK = WALL | GATE_MASK; // flags that stay the same during a game
+
+    private int myId;
+    private int opponentId;
     private int width;
     private int height;
 
-    private String[][] field;
+    private int[] cells; // indexed by y * width + x
+    private int[] previousCells; // cells of the previous round
+    private int[] changedCells;
+    private int[] playerCells; // cell of player 0 and 1, -1 if not on the field
+    private int[] previousPlayerCells;
+    private int[] bugCells; // bugs in the order they were parsed
+    private int[] bugTypes;
+    private int[] bugPreviousCells;
+    private int bugCount;
+    private int[] previousBugCells; // bugs of the previous round
+    private int[] previousBugTypes;
+    private int previousBugCount;
+    private int changedCellCount;
+    private int layoutVersion;
     private Point myPosition;
     private Point opponentPosition;
     private ArrayList<Point> enemyPositions;
     private ArrayList<Point> snippetPositions;
     private ArrayList<Point> bombPositions;
     private ArrayList<Point> tickingBombPositions;
+    private ArrayList<Point> spawnPositions;
+
+    private byte[] inputBuffer = new byte[0]; // string input is copied here for the byte parser
+    private Point[] pointPool; // points are reused between rounds to keep parsing garbage free
+    private int pointPoolSize;
 
     public Field() {
         this.enemyPositions = new ArrayList<>();
         this.snippetPositions = new ArrayList<>();
         this.bombPositions = new ArrayList<>();
         this.tickingBombPositions = new ArrayList<>();
+        this.spawnPositions = new ArrayList<>();
+        this.playerCells = new int[] {-1, -1};
+        this.previousPlayerCells = new int[] {-1, -1};
     }
 
     /**
-     * Initializes field
+     * Initializes field. The buffers are only allocated again
+     * when the size of the field has changed.
      * @throws Exception: exception
      */
     public void initField() throws Exception {
         try {
-            this.field = new String[this.width][this.height];
+            if (!isInitialized()) {
+                this.cells = new int[this.width * this.height];
+                this.previousCells = new int[this.width * this.height];
+                this.changedCells = new int[this.width * this.height];
+                this.changedCellCount = 0;
+                this.pointPool = new Point[this.width * this.height];
+                this.bugCells = new int[this.width * this.height];
+                this.bugTypes = new int[this.width * this.height];
+                this.bugPreviousCells = new int[this.width * this.height];
+                this.previousBugCells = new int[this.width * this.height];
+                this.previousBugTypes = new int[this.width * this.height];
+                this.previousBugCount = 0;
+            }
         } catch (Exception e) {
             throw new Exception("Error: trying to initialize field while field "
                     + "settings have not been parsed yet.");
@@ -72,15 +122,23 @@ public class Field {
         clearField();
     }
 
+    /**
+     * Returns whether the field buffers match the current field size
+     * @return True if initField does not have to allocate anything
+     */
+    public boolean isInitialized() {
+        return this.cells != null && this.cells.length == this.width * this.height;
+    }
+
     /**
      * Clears the field
      */
     public void clearField() {
-        for (int y = 0; y < this.height; y++) {
-            for (int x = 0; x < this.width; x++) {
-                this.field[x][y] = "";
-            }
-        }
+        Arrays.fill(this.cells, 0);
+        this.pointPoolSize = 0;
+        this.playerCells[0] = -1;
+        this.playerCells[1] = -1;
+        this.bugCount = 0;
 
         this.myPosition = null;
         this.opponentPosition = null;
@@ -88,50 +146,205 @@ public class Field {
         this.snippetPositions.clear();
         this.bombPositions.clear();
         this.tickingBombPositions.clear();
+        this.spawnPositions.clear();
     }
 
     /**
-     * Parses input string from the engine and stores it in
-     * this.field. Also stores several interesting points.
+     * Parses input string from the engine, see parseFromBytes.
+     * The characters are copied into a reused byte buffer first.
      * @param input String input from the engine
      */
     public void parseFromString(String input) {
+        int length = input.length();
+        if (this.inputBuffer.length < length) this.inputBuffer = new byte[length];
+        for (int i = 0; i < length; i++) {
+            this.inputBuffer[i] = (byte) input.charAt(i);
+        }
+        parseFromBytes(this.inputBuffer, 0, length);
+    }
+
+    /**
+     * Parses input from the engine and stores it as cell flags
+     * in this.cells. Also stores several interesting points.
+     * The input is read byte by byte in a single pass,
+     * nothing is allocated once the buffers have warmed up.
+     * Points returned by the getters are reused in the next round.
+     * Afterwards the cells that differ from the previous round
+     * can be read with getChangedCells and every bug knows
+     * the cell it came from.
+     * @param input Buffer with the ASCII input from the engine
+     * @param start Index of the first byte of the field
+     * @param end Index after the last byte of the field
+     */
+    public void parseFromBytes(byte[] input, int start, int end) {
+        int[] previous = this.previousCells;
+        this.previousCells = this.cells;
+        this.cells = previous;
+        int[] previousPlayers = this.previousPlayerCells;
+        this.previousPlayerCells = this.playerCells;
+        this.playerCells = previousPlayers;
+        int[] previousBugs = this.previousBugCells;
+        this.previousBugCells = this.bugCells;
+        this.bugCells = previousBugs;
+        int[] previousTypes = this.previousBugTypes;
+        this.previousBugTypes = this.bugTypes;
+        this.bugTypes = previousTypes;
+        this.previousBugCount = this.bugCount;
         clearField();
 
-        String[] cells = input.split(",");
         int x = 0;
         int y = 0;
+        boolean partStart = true;
+
+        for (int i = start; i < end; i++) {
+            byte c = input[i];
 
-        for (String cellString : cells) {
-            this.field[x][y] = cellString;
-
-          for (String cellPart : cellString.split(";")) {
-                switch (cellPart.charAt(0)) {
-                    case 'P':
-                        parsePlayerCell(cellPart.charAt(1), x, y);
-                        break;
-                    case 'e':
-                        // TODO: store spawn points
-                        break;
-                    case 'E':
-                        parseEnemyCell(cellPart.charAt(1), x, y);
-                        break;
-                    case 'B':
-                        parseBombCell(cellPart, x, y);
-                        break;
-                    case 'C':
-                        parseSnippetCell(x, y);
-                        break;
+            if (c == ',') {
+                partStart = true;
+                if (++x == this.width) {
+                    x = 0;
+                    y++;
                 }
+                continue;
             }
+            if (c == ';') {
+                partStart = true;
+                continue;
+            }
+            if (!partStart) continue;
+            partStart = false;
+
+            char next = i + 1 < end ? (char) input[i + 1] : ',';
+            switch (c) {
+                case 'x':
+                    this.cells[getCellId(x, y)] |= WALL;
+                    break;
+                case 'G':
+                    parseGateCell(next, x, y);
+                    break;
+                case 'P':
+                    parsePlayerCell(next, x, y);
+                    break;
+                case 'e':
+                    parseSpawnCell(x, y);
+                    break;
+                case 'E':
+                    parseEnemyCell(next, x, y);
+                    break;
+                case 'B':
+                    parseBombCell(next >= '0' && next <= '9' ? next - '0' : 0, x, y);
+                    break;
+                case 'C':
+                    parseSnippetCell(x, y);
+                    break;
+            }
+        }
+
+        findChangedCells();
+        matchBugs();
+    }
 
-            if (++x == this.width) {
-                x = 0;
-                y++;
+    /**
+     * Finds the cell every bug stood on in the previous round. A bug
+     * moves one cell per round, so it's matched with an unmatched bug
+     * of the same type that stood on a neighbouring cell or on a gate
+     * leading to its cell. Bugs without a match have just spawned
+     * and get their own cell.
+     */
+    private void matchBugs() {
+        long matched = 0; // bit per previous bug, bugs after the 64th are never matched
+        for (int bug = 0; bug < this.bugCount; bug++) {
+            int cell = this.bugCells[bug];
+            this.bugPreviousCells[bug] = cell;
+            for (int other = 0; other < this.previousBugCount && other < 64; other++) {
+                if ((matched & (1L << other)) != 0 || this.previousBugTypes[other] != this.bugTypes[bug]) continue;
+                int previousCell = this.previousBugCells[other];
+                if (isStep(previousCell, cell)) {
+                    this.bugPreviousCells[bug] = previousCell;
+                    matched |= 1L << other;
+                    break;
+                }
             }
         }
     }
 
+    /**
+     * Returns whether one move leads from a cell to the other
+     * @param from Id of the start cell
+     * @param to Id of the end cell
+     * @return True if the cells are neighbours or connected by a gate
+     */
+    private boolean isStep(int from, int to) {
+        int dx = Math.abs(from % this.width - to % this.width);
+        int dy = Math.abs(from / this.width - to / this.width);
+        return dx + dy == 1 || getGateDestination(from) == to;
+    }
+
+    /**
+     * Compares the cells with the ones of the previous round and stores
+     * the ids of the cells that differ. The layout version is increased
+     * when walls or gates have changed, which only happens
+     * on the first field of a game.
+     */
+    private void findChangedCells() {
+        boolean layoutChanged = false;
+        this.changedCellCount = 0;
+
+        for (int i = 0; i < this.cells.length; i++) {
+            int difference = this.cells[i] ^ this.previousCells[i];
+            if (difference != 0) {
+                this.changedCells[this.changedCellCount++] = i;
+                if ((difference & LAYOUT_MASK) != 0) layoutChanged = true;
+            }
+        }
+
+        if (layoutChanged) this.layoutVersion++;
+    }
+
+    /**
+     * Returns a point from the pool, so no new points are created
+     * once the pool is big enough.
+     * @param x X-position
+     * @param y Y-position
+     * @return Point with given position
+     */
+    private Point obtainPoint(int x, int y) {
+        if (this.pointPoolSize == this.pointPool.length) {
+            this.pointPool = Arrays.copyOf(this.pointPool, this.pointPool.length * 2 + 1);
+        }
+        Point point = this.pointPool[this.pointPoolSize];
+        if (point == null) {
+            point = new Point();
+            this.pointPool[this.pointPoolSize] = point;
+        }
+        this.pointPoolSize++;
+        point.setLocation(x, y);
+        return point;
+    }
+
+    /**
+     * Stores the direction of a gate
+     * @param direction Direction character of the gate (l, r, u or d)
+     * @param x X-position
+     * @param y Y-position
+     */
+    private void parseGateCell(char direction, int x, int y) {
+        switch (direction) {
+            case 'l':
+                this.cells[getCellId(x, y)] |= GATE_LEFT;
+                break;
+            case 'r':
+                this.cells[getCellId(x, y)] |= GATE_RIGHT;
+                break;
+            case 'u':
+                this.cells[getCellId(x, y)] |= GATE_UP;
+                break;
+            case 'd':
+                this.cells[getCellId(x, y)] |= GATE_DOWN;
+                break;
+        }
+    }
+
     /**
      * Stores the position of one of the players, given by the id
      * @param id Player ID
@@ -139,40 +352,65 @@ public class Field {
      * @param y Y-position
      */
     private void parsePlayerCell(char id, int x, int y) {
-        if (id == this.myId.charAt(0)) {
-            this.myPosition = new Point(x, y);
-        } else if (id == this.opponentId.charAt(0)) {
-            this.opponentPosition = new Point(x, y);
+        int playerId = id - '0';
+        this.cells[getCellId(x, y)] |= playerId == 0 ? PLAYER_0 : PLAYER_1;
+        if (playerId == 0 || playerId == 1) this.playerCells[playerId] = getCellId(x, y);
+
+        if (playerId == this.myId) {
+            this.myPosition = obtainPoint(x, y);
+        } else if (playerId == this.opponentId) {
+            this.opponentPosition = obtainPoint(x, y);
         }
     }
 
     /**
-     * Stores the position of an enemy. The type of enemy AI
-     * is also given, but not stored in the starterbot.
+     * Stores the position and the type of enemy AI of an enemy
      * @param type Type of enemy AI
      * @param x X-position
      * @param y Y-position
      */
     private void parseEnemyCell(char type, int x, int y) {
-        this.enemyPositions.add(new Point(x, y));
+        int enemyType = type >= '0' && type <= '3' ? type - '0' : 0;
+        int cellId = getCellId(x, y);
+        this.cells[cellId] |= BUG | (1 << (BUG_TYPE_SHIFT + enemyType));
+        this.enemyPositions.add(obtainPoint(x, y));
+
+        if (this.bugCount == this.bugCells.length) {
+            this.bugCells = Arrays.copyOf(this.bugCells, this.bugCount * 2);
+            this.bugTypes = Arrays.copyOf(this.bugTypes, this.bugCount * 2);
+            this.bugPreviousCells = Arrays.copyOf(this.bugPreviousCells, this.bugCount * 2);
+        }
+        this.bugCells[this.bugCount] = cellId;
+        this.bugTypes[this.bugCount] = enemyType;
+        this.bugCount++;
+    }
+
+    /**
+     * Stores the position of a spawn point of enemies
+     * @param x X-position
+     * @param y Y-position
+     */
+    private void parseSpawnCell(int x, int y) {
+        this.cells[getCellId(x, y)] |= SPAWN;
+        this.spawnPositions.add(obtainPoint(x, y));
     }
 
     /**
      * Stores the position of a bomb that can be collected or is
-     * about to explode. The amount of ticks is not stored
-     * in this starterbot.
-     * @param cell The string that represents a bomb, if only 1 letter it
-     *             can be collected, otherwise it will contain a number
-     *             2 - 5, that means it's ticking to explode in that amount
-     *             of rounds.
+     * about to explode. The amount of ticks is stored in the cell flags.
+     * @param ticks 0 if the bomb can be collected, otherwise a number
+     *              2 - 5, that means it's ticking to explode in that amount
+     *              of rounds.
      * @param x X-position
      * @param y Y-position
      */
-    private void parseBombCell(String cell, int x, int y) {
-        if (cell.length() <= 1) {
-            this.bombPositions.add(new Point(x, y));
+    private void parseBombCell(int ticks, int x, int y) {
+        if (ticks == 0) {
+            this.cells[getCellId(x, y)] |= BOMB;
+            this.bombPositions.add(obtainPoint(x, y));
         } else {
-            this.tickingBombPositions.add(new Point(x, y));
+            this.cells[getCellId(x, y)] |= ticks << BOMB_TICKS_SHIFT;
+            this.tickingBombPositions.add(obtainPoint(x, y));
         }
     }
 
@@ -182,7 +420,8 @@ public class Field {
      * @param y Y-position
      */
     private void parseSnippetCell(int x, int y) {
-        this.snippetPositions.add(new Point(x, y));
+        this.cells[getCellId(x, y)] |= SNIPPET;
+        this.snippetPositions.add(obtainPoint(x, y));
     }
 
     /**
@@ -214,12 +453,20 @@ public class Field {
      * @return True if point is valid to stand on, false otherwise
      */
     private boolean isPointValid(Point point) {
-        int x = point.x;
-        int y = point.y;
+        return isPointValid(point.x, point.y);
+    }
 
+    /**
+     * Returns whether a point on the field is valid to stand on.
+     * @param x X-position
+     * @param y Y-position
+     * @return True if point is valid to stand on, false otherwise
+     */
+    public boolean isPointValid(int x, int y) {
         return x >= 0 && x < this.width && y >= 0 && y < this.height &&
-                !this.field[x][y].contains(BLOCKED_FIELD);
+                (this.cells[getCellId(x, y)] & WALL) == 0;
     }
+
     /**
      * Returns whether a point on the field is safe to stand on.
      * @param point,bugIsWall Point to test, Information if we should treat bug as a wall
@@ -227,49 +474,82 @@ public class Field {
      */
     public boolean isPointSafe(Point point, boolean bugIsWall) //false if we treat bug as wall
     {
-        if(!isPointValid(point)) return false;
-        if(bugIsWall && isBug(point)) return false;
+        return isPointSafe(point.x, point.y, bugIsWall);
+    }
+
+    public boolean isPointSafe(int x, int y, boolean bugIsWall)
+    {
+        if(!isPointValid(x, y)) return false;
+        if(bugIsWall && (this.cells[getCellId(x, y)] & BUG) != 0) return false;
         return true;
     }
+
     public boolean isGate(Point point)
     {
-        int x = point.x;
-        int y = point.y;
-        String[] objects = getCell(point).split(";");
-        objects = Arrays.stream(objects).filter(object->object.startsWith("G")).toArray(String[]::new);
-        return objects.length==1;
+        return (getCell(point) & GATE_MASK) != 0;
+    }
+
+    /**
+     * Returns the direction a gate leads to
+     * @param point Point of the gate
+     * @return Direction of the gate, MoveType.PASS if there is no gate
+     */
+    public MoveType getGate(Point point)
+    {
+        return getGate(getCell(point));
     }
 
-    public String getGate(Point point)
+    private MoveType getGate(int cell)
     {
-        int x = point.x;
-        int y = point.y;
-        String[] objects = getCell(point).split(";");
-        return Arrays.stream(objects).filter(object->object.startsWith("G")).toArray(String[]::new)[0];
+        switch(cell & GATE_MASK)
+        {
+            case GATE_LEFT:
+                return MoveType.LEFT;
+            case GATE_RIGHT:
+                return MoveType.RIGHT;
+            case GATE_UP:
+                return MoveType.UP;
+            case GATE_DOWN:
+                return MoveType.DOWN;
+            default:
+                return MoveType.PASS;
+        }
     }
 
     public Point getGateDestination(Point point)
     {
-        int x = point.x;
-        int y = point.y;
-        switch(getGate(point).charAt(1))
+        int destination = getGateDestination(getCellId(point.x, point.y));
+        if(destination == -1) return null;
+        return new Point(destination % this.width, destination / this.width);
+    }
+
+    /**
+     * Returns the cell a gate leads to
+     * @param cellId Id of the gate cell
+     * @return Id of the destination cell, -1 if there is no gate
+     */
+    public int getGateDestination(int cellId)
+    {
+        int x = cellId % this.width;
+        int y = cellId / this.width;
+        switch(getGate(this.cells[cellId]))
         {
-            case 'l':
-                return new Point(getWidth()-1,y);
-            case 'r':
-                return new Point(0,y);
-            case 'u':
-                return new Point(x,getHeight()-1);
-            case 'd':
-                return new Point(x,0);
-                default:
-                    return null;
+            case LEFT:
+                return getCellId(getWidth()-1,y);
+            case RIGHT:
+                return getCellId(0,y);
+            case UP:
+                return getCellId(x,getHeight()-1);
+            case DOWN:
+                return getCellId(x,0);
+            default:
+                return -1;
         }
     }
+
     public boolean isBug(Point point)
     {
-
-        return getCell(point).indexOf('E') != -1;
+        return (getCell(point) & BUG) != 0;
     }
 
     /**
@@ -291,38 +571,83 @@ public class Field {
         }
         else
         {
-            switch (getGate(startPoint).charAt(1))
-            {
-                case 'l':
-                    return MoveType.LEFT;
-                case 'r':
-                    return MoveType.RIGHT;
-                case 'u':
-                    return MoveType.UP;
-                case 'd':
-                    return MoveType.DOWN;
-            }
+            return getGate(startPoint);
         }
         return MoveType.PASS;
     }
 
-    public String getCell(Point point)
+    /**
+     * Returns the flags of a cell
+     * @param point Position of the cell
+     * @return Bit flags of the cell, see the constants in this class
+     */
+    public int getCell(Point point)
     {
-        int x = point.x;
-        int y = point.y;
-        if(this.field[x][y]!=null)
-        {
-            return this.field[x][y];
-        }
-        return  null;
+        return this.cells[getCellId(point.x, point.y)];
+    }
+
+    public int getCell(int cellId)
+    {
+        return this.cells[cellId];
+    }
+
+    /**
+     * Returns the flags a cell had in the previous round
+     * @param cellId Id of the cell
+     * @return Bit flags of the cell in the previous round
+     */
+    public int getPreviousCell(int cellId)
+    {
+        return this.previousCells[cellId];
+    }
+
+    /**
+     * Returns the ids of the cells that changed since the previous round.
+     * Only the first getChangedCellCount() entries are valid and
+     * the array is overwritten when the next field is parsed.
+     * @return Ids of the changed cells
+     */
+    public int[] getChangedCells()
+    {
+        return this.changedCells;
+    }
+
+    public int getChangedCellCount()
+    {
+        return this.changedCellCount;
+    }
+
+    /**
+     * Returns a number that changes every time the walls or gates change,
+     * structures built from the layout only have to be rebuilt then.
+     * @return Version of the static layout
+     */
+    public int getLayoutVersion()
+    {
+        return this.layoutVersion;
+    }
+
+    public int getCellId(int x, int y)
+    {
+        return y * this.width + x;
+    }
+
+    /**
+     * Returns the amount of ticks until the bomb on given cell explodes
+     * @param cellId Id of the cell
+     * @return Ticks until explosion, 0 if there is no ticking bomb
+     */
+    public int getBombTicks(int cellId)
+    {
+        return (this.cells[cellId] & BOMB_TICKS_MASK) >> BOMB_TICKS_SHIFT;
     }
 
     public void setMyId(int id) {
-        this.myId = id + "";
+        this.myId = id;
     }
 
     public void setOpponentId(int id) {
-        this.opponentId = id + "";
+        this.opponentId = id;
     }
 
     public void setWidth(int width) {
@@ -341,6 +666,14 @@ public class Field {
         return width;
     }
 
+    public int getMyId() {
+        return this.myId;
+    }
+
+    public int getOpponentId() {
+        return this.opponentId;
+    }
+
     public Point getMyPosition() {
         return this.myPosition;
     }
@@ -364,4 +697,52 @@ public class Field {
     public ArrayList<Point> getTickingBombPositions() {
         return this.tickingBombPositions;
     }
+
+    public ArrayList<Point> getSpawnPositions() {
+        return this.spawnPositions;
+    }
+
+    /**
+     * Returns the cell a player stands on
+     * @param id Player ID
+     * @return Id of the cell, -1 if the player is not on the field
+     */
+    public int getPlayerCell(int id) {
+        return this.playerCells[id];
+    }
+
+    /**
+     * Returns the cell a player stood on in the previous round
+     * @param id Player ID
+     * @return Id of the cell, -1 if the player was not on the field
+     */
+    public int getPreviousPlayerCell(int id) {
+        return this.previousPlayerCells[id];
+    }
+
+    public int getBugCount() {
+        return this.bugCount;
+    }
+
+    public int getBugCell(int bug) {
+        return this.bugCells[bug];
+    }
+
+    /**
+     * Returns the type of enemy AI of a bug
+     * @param bug Index of the bug, 0 - getBugCount()-1
+     * @return Type of enemy AI 0 - 3
+     */
+    public int getBugType(int bug) {
+        return this.bugTypes[bug];
+    }
+
+    /**
+     * Returns the cell a bug stood on in the previous round
+     * @param bug Index of the bug, 0 - getBugCount()-1
+     * @return Id of the cell, the bug's own cell if it has just spawned
+     */
+    public int getBugPreviousCell(int bug) {
+        return this.bugPreviousCells[bug];
+    }
 }
@@ -0,0 +1,608 @@
+package field;
+
+import java.util.Arrays;
+
+import move.MoveType;
+
+/**
+ * field.GameSimulator
+ *
+ * Array backed copy of a Field that can be advanced tick by tick.
+ * Both players move, pick up snippets and bombs, bugs step and
+ * ticking bombs count down and explode, following the MS.HACK-MAN
+ * rules. Spawning of new bugs and snippets is random and not simulated.
+ * All state lives in one int array and every write is journaled,
+ * so apply and undo work in place and nothing is allocated
+ * while searching. A Zobrist hash of the state is kept up to date
+ * with every change.
+ *
+ * @author Marek Gargas
+ */
+public class GameSimulator {
+
+    public static final int HIT_PENALTY = 4; // snippets lost when hit by a bug or an explosion
+    public static final int NO_BOMB = 0;
+
+    private static final int MOVE_COUNT = 5;
+    private static final int[] DX = {0, 0, -1, 1};
+    private static final int[] DY = {-1, 1, 0, 0};
+
+    /* Layout of the state array */
+    private static final int PLAYER_CELL = 0;      // 2 entries
+    private static final int PLAYER_SNIPPETS = 2;  // 2 entries
+    private static final int PLAYER_BOMBS = 4;     // 2 entries
+    private static final int ALIVE = 6;            // bit per player
+    private static final int TICK = 7;
+    private static final int BUG_COUNT = 8;
+    private static final int TICKING_COUNT = 9;
+    private static final int SNIPPET_COUNT = 10;
+    private static final int HEADER_SIZE = 11;
+    private static final int BUG_FIELDS = 3;       // cell, previous cell, type
+    private static final int TICKING_FIELDS = 2;   // cell, ticks left
+
+    /* Flags of the per cell entries */
+    private static final int ITEM_SNIPPET = 1;
+    private static final int ITEM_BOMB = 2;
+
+    private final int width;
+    private final int height;
+    private final int cellCount;
+    private final boolean[] walkable;
+    private final int[] moveTarget; // cell * 5 + move ordinal -> next cell, -1 if the move is not possible
+    private final Zobrist zobrist;
+
+    private int[] state;
+    private int bugBase;
+    private int tickingBase;
+    private int cellBase;
+    private int bugCapacity;
+    private int tickingCapacity;
+
+    private int[] journal = new int[1024]; // pairs of index and old value
+    private int journalSize;
+    private int[] frames = new int[64];
+    private long[] frameHashes = new long[64];
+    private int frameCount;
+    private long hash;
+
+    private BugMover bugMover;
+
+    public GameSimulator(Field field) {
+        this.width = field.getWidth();
+        this.height = field.getHeight();
+        this.cellCount = this.width * this.height;
+        this.walkable = new boolean[this.cellCount];
+        this.moveTarget = new int[this.cellCount * MOVE_COUNT];
+
+        for (int cell = 0; cell < this.cellCount; cell++) {
+            this.walkable[cell] = (field.getCell(cell) & Field.WALL) == 0;
+        }
+        for (int cell = 0; cell < this.cellCount; cell++) {
+            int x = cell % this.width;
+            int y = cell / this.width;
+            for (int move = 0; move < 4; move++) {
+                int target = -1;
+                if (this.walkable[cell]) {
+                    int nx = x + DX[move];
+                    int ny = y + DY[move];
+                    if (nx >= 0 && nx < this.width && ny >= 0 && ny < this.height
+                            && this.walkable[ny * this.width + nx]) {
+                        target = ny * this.width + nx;
+                    }
+                    if (gateDirection(field.getCell(cell)) == move) {
+                        target = field.getGateDestination(cell);
+                    }
+                }
+                this.moveTarget[cell * MOVE_COUNT + move] = target;
+            }
+            this.moveTarget[cell * MOVE_COUNT + MoveType.PASS.ordinal()] = cell;
+        }
+        this.zobrist = new Zobrist(this.cellCount);
+        this.bugMover = this::chaseClosestPlayer;
+    }
+
+    private static int gateDirection(int cell) {
+        switch (cell & Field.GATE_MASK) {
+            case Field.GATE_UP:
+                return MoveType.UP.ordinal();
+            case Field.GATE_DOWN:
+                return MoveType.DOWN.ordinal();
+            case Field.GATE_LEFT:
+                return MoveType.LEFT.ordinal();
+            case Field.GATE_RIGHT:
+                return MoveType.RIGHT.ordinal();
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Loads the current state of the field and clears the history.
+     * The field must have the same layout the simulator was created with.
+     * @param field Field to copy
+     * @param snippets Snippets of player 0 and 1
+     * @param bombs Bombs of player 0 and 1
+     */
+    public void load(Field field, int[] snippets, int[] bombs) {
+        int ticking = 0;
+        int bombItems = 0;
+        for (int cell = 0; cell < this.cellCount; cell++) {
+            int flags = field.getCell(cell);
+            if ((flags & Field.BOMB_TICKS_MASK) != 0) ticking++;
+            if ((flags & Field.BOMB) != 0) bombItems++;
+        }
+        int maxTicking = ticking + bombs[0] + bombs[1] + bombItems;
+        allocate(field.getBugCount(), maxTicking);
+
+        Arrays.fill(this.state, 0);
+        this.journalSize = 0;
+        this.frameCount = 0;
+        this.state[PLAYER_CELL] = -1;
+        this.state[PLAYER_CELL + 1] = -1;
+
+        for (int bug = 0; bug < field.getBugCount(); bug++) {
+            int index = this.bugBase + bug * BUG_FIELDS;
+            this.state[index] = field.getBugCell(bug);
+            this.state[index + 1] = field.getBugPreviousCell(bug);
+            this.state[index + 2] = field.getBugType(bug);
+        }
+        for (int cell = 0; cell < this.cellCount; cell++) {
+            int flags = field.getCell(cell);
+            if ((flags & Field.PLAYER_0) != 0) this.state[PLAYER_CELL] = cell;
+            if ((flags & Field.PLAYER_1) != 0) this.state[PLAYER_CELL + 1] = cell;
+            int ticks = field.getBombTicks(cell);
+            if (ticks > 0) {
+                int index = this.tickingBase + this.state[TICKING_COUNT]++ * TICKING_FIELDS;
+                this.state[index] = cell;
+                this.state[index + 1] = ticks;
+            }
+            if ((flags & Field.SNIPPET) != 0) {
+                this.state[this.cellBase + cell] |= ITEM_SNIPPET;
+                this.state[SNIPPET_COUNT]++;
+            }
+            if ((flags & Field.BOMB) != 0) this.state[this.cellBase + cell] |= ITEM_BOMB;
+        }
+        this.state[BUG_COUNT] = field.getBugCount();
+        for (int player = 0; player < 2; player++) {
+            this.state[PLAYER_SNIPPETS + player] = snippets[player];
+            this.state[PLAYER_BOMBS + player] = bombs[player];
+            if (this.state[PLAYER_CELL + player] != -1) this.state[ALIVE] |= 1 << player;
+        }
+        this.hash = computeHash();
+    }
+
+    /**
+     * Computes the Zobrist hash of the current state from scratch,
+     * apply and undo keep getHash equal to it.
+     * @return Hash of the current state
+     */
+    public long computeHash() {
+        long hash = this.zobrist.alive(this.state[ALIVE]);
+        for (int player = 0; player < 2; player++) {
+            hash ^= this.zobrist.playerCell(player, this.state[PLAYER_CELL + player])
+                    ^ this.zobrist.playerSnippets(player, this.state[PLAYER_SNIPPETS + player])
+                    ^ this.zobrist.playerBombs(player, this.state[PLAYER_BOMBS + player]);
+        }
+        for (int bug = 0; bug < this.state[BUG_COUNT]; bug++) {
+            hash ^= bugKey(getBugType(bug), getBugCell(bug), getBugPreviousCell(bug));
+        }
+        for (int bomb = 0; bomb < this.state[TICKING_COUNT]; bomb++) {
+            hash ^= this.zobrist.ticking(getTickingBombCell(bomb), getTickingBombTicks(bomb));
+        }
+        for (int cell = 0; cell < this.cellCount; cell++) {
+            if (hasSnippet(cell)) hash ^= this.zobrist.snippet(cell);
+            if (hasBomb(cell)) hash ^= this.zobrist.bomb(cell);
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the Zobrist hash of the current state
+     */
+    public long getHash() {
+        return this.hash;
+    }
+
+    private void allocate(int bugs, int ticking) {
+        if (this.state != null && bugs <= this.bugCapacity && ticking <= this.tickingCapacity) return;
+        this.bugCapacity = Math.max(bugs, this.bugCapacity);
+        this.tickingCapacity = Math.max(ticking, this.tickingCapacity);
+        this.bugBase = HEADER_SIZE;
+        this.tickingBase = this.bugBase + this.bugCapacity * BUG_FIELDS;
+        this.cellBase = this.tickingBase + this.tickingCapacity * TICKING_FIELDS;
+        this.state = new int[this.cellBase + this.cellCount];
+    }
+
+    public void setBugMover(BugMover bugMover) {
+        this.bugMover = bugMover;
+    }
+
+    /**
+     * Advances the game by one tick, neither player drops a bomb.
+     * @param move0 Move of player 0
+     * @param move1 Move of player 1
+     */
+    public void apply(MoveType move0, MoveType move1) {
+        apply(move0.ordinal(), NO_BOMB, move1.ordinal(), NO_BOMB);
+    }
+
+    /**
+     * Advances the game by one tick. The step can be taken back with undo.
+     * @param move0 MoveType ordinal of player 0
+     * @param bombTicks0 Ticks of the bomb player 0 drops, NO_BOMB for none
+     * @param move1 MoveType ordinal of player 1
+     * @param bombTicks1 Ticks of the bomb player 1 drops, NO_BOMB for none
+     */
+    public void apply(int move0, int bombTicks0, int move1, int bombTicks1) {
+        pushFrame();
+
+        dropBomb(0, bombTicks0);
+        dropBomb(1, bombTicks1);
+        movePlayer(0, move0);
+        movePlayer(1, move1);
+        pickUp(0);
+        pickUp(1);
+        collideBugs();
+
+        int bugCount = this.state[BUG_COUNT];
+        for (int bug = 0; bug < bugCount; bug++) {
+            int index = this.bugBase + bug * BUG_FIELDS;
+            int next = this.bugMover.nextCell(this, bug);
+            this.hash ^= bugKey(this.state[index + 2], this.state[index], this.state[index + 1])
+                    ^ bugKey(this.state[index + 2], next, this.state[index]);
+            set(index + 1, this.state[index]);
+            set(index, next);
+        }
+        collideBugs();
+
+        for (int bomb = 0; bomb < this.state[TICKING_COUNT]; ) {
+            int index = this.tickingBase + bomb * TICKING_FIELDS;
+            if (this.state[index + 1] > 1) {
+                setTicks(bomb, this.state[index + 1] - 1);
+                bomb++;
+            } else {
+                explode(this.state[index]);
+                removeTicking(bomb);
+            }
+        }
+        set(TICK, this.state[TICK] + 1);
+    }
+
+    /**
+     * Takes back the last apply
+     */
+    public void undo() {
+        int frameStart = this.frames[--this.frameCount];
+        this.hash = this.frameHashes[this.frameCount];
+        while (this.journalSize > frameStart) {
+            this.journalSize -= 2;
+            this.state[this.journal[this.journalSize]] = this.journal[this.journalSize + 1];
+        }
+    }
+
+    private void pushFrame() {
+        if (this.frameCount == this.frames.length) {
+            this.frames = Arrays.copyOf(this.frames, this.frames.length * 2);
+            this.frameHashes = Arrays.copyOf(this.frameHashes, this.frameHashes.length * 2);
+        }
+        this.frameHashes[this.frameCount] = this.hash;
+        this.frames[this.frameCount++] = this.journalSize;
+    }
+
+    private void set(int index, int value) {
+        if (this.state[index] == value) return;
+        if (this.journalSize + 2 > this.journal.length) {
+            this.journal = Arrays.copyOf(this.journal, this.journal.length * 2);
+        }
+        this.journal[this.journalSize++] = index;
+        this.journal[this.journalSize++] = this.state[index];
+        this.state[index] = value;
+    }
+
+    private void setPlayerCell(int player, int cell) {
+        this.hash ^= this.zobrist.playerCell(player, this.state[PLAYER_CELL + player])
+                ^ this.zobrist.playerCell(player, cell);
+        set(PLAYER_CELL + player, cell);
+    }
+
+    private void setSnippets(int player, int snippets) {
+        this.hash ^= this.zobrist.playerSnippets(player, this.state[PLAYER_SNIPPETS + player])
+                ^ this.zobrist.playerSnippets(player, snippets);
+        set(PLAYER_SNIPPETS + player, snippets);
+    }
+
+    private void setBombs(int player, int bombs) {
+        this.hash ^= this.zobrist.playerBombs(player, this.state[PLAYER_BOMBS + player])
+                ^ this.zobrist.playerBombs(player, bombs);
+        set(PLAYER_BOMBS + player, bombs);
+    }
+
+    private void setAlive(int mask) {
+        this.hash ^= this.zobrist.alive(this.state[ALIVE]) ^ this.zobrist.alive(mask);
+        set(ALIVE, mask);
+    }
+
+    private void setTicks(int bomb, int ticks) {
+        int index = this.tickingBase + bomb * TICKING_FIELDS;
+        this.hash ^= this.zobrist.ticking(this.state[index], this.state[index + 1])
+                ^ this.zobrist.ticking(this.state[index], ticks);
+        set(index + 1, ticks);
+    }
+
+    private void dropBomb(int player, int ticks) {
+        if (ticks == NO_BOMB || !isAlive(player) || this.state[PLAYER_BOMBS + player] == 0) return;
+        int count = this.state[TICKING_COUNT];
+        if (count == this.tickingCapacity) return;
+        setBombs(player, this.state[PLAYER_BOMBS + player] - 1);
+        set(this.tickingBase + count * TICKING_FIELDS, this.state[PLAYER_CELL + player]);
+        set(this.tickingBase + count * TICKING_FIELDS + 1, ticks);
+        set(TICKING_COUNT, count + 1);
+        this.hash ^= this.zobrist.ticking(this.state[PLAYER_CELL + player], ticks);
+    }
+
+    private void movePlayer(int player, int move) {
+        if (!isAlive(player)) return;
+        int target = getMoveTarget(this.state[PLAYER_CELL + player], move);
+        if (target != -1) setPlayerCell(player, target); // invalid moves are treated as pass
+    }
+
+    private void pickUp(int player) {
+        if (!isAlive(player)) return;
+        int index = this.cellBase + this.state[PLAYER_CELL + player];
+        int items = this.state[index];
+        if (items == 0) return;
+        int cell = this.state[PLAYER_CELL + player];
+        if ((items & ITEM_SNIPPET) != 0) {
+            setSnippets(player, this.state[PLAYER_SNIPPETS + player] + 1);
+            // both players get the snippet when they step on it at the same time
+            if (player == 1 || this.state[PLAYER_CELL] != this.state[PLAYER_CELL + 1] || !isAlive(1)) {
+                set(SNIPPET_COUNT, this.state[SNIPPET_COUNT] - 1);
+                set(index, items & ~ITEM_SNIPPET);
+                this.hash ^= this.zobrist.snippet(cell);
+            }
+        }
+        if ((this.state[index] & ITEM_BOMB) != 0) {
+            setBombs(player, this.state[PLAYER_BOMBS + player] + 1);
+            set(index, this.state[index] & ~ITEM_BOMB);
+            this.hash ^= this.zobrist.bomb(cell);
+        }
+    }
+
+    /**
+     * Removes every bug that stands on the same cell as a player and hits
+     * the player. Players move before bugs, so a player and a bug that swap
+     * cells meet here before the bug moves.
+     */
+    private void collideBugs() {
+        for (int bug = 0; bug < this.state[BUG_COUNT]; ) {
+            int index = this.bugBase + bug * BUG_FIELDS;
+            boolean collided = false;
+            for (int player = 0; player < 2; player++) {
+                if (!isAlive(player)) continue;
+                int playerCell = this.state[PLAYER_CELL + player];
+                if (this.state[index] == playerCell) {
+                    hitPlayer(player);
+                    collided = true;
+                }
+            }
+            if (collided) {
+                removeBug(bug);
+            } else {
+                bug++;
+            }
+        }
+    }
+
+    private void hitPlayer(int player) {
+        int snippets = this.state[PLAYER_SNIPPETS + player];
+        if (snippets < HIT_PENALTY) {
+            setSnippets(player, 0);
+            setAlive(this.state[ALIVE] & ~(1 << player));
+        } else {
+            setSnippets(player, snippets - HIT_PENALTY);
+        }
+    }
+
+    /**
+     * Explodes a bomb, the blast goes in all four directions until
+     * it hits a wall. Bugs in the blast die, players are hit.
+     */
+    private void explode(int cell) {
+        blast(cell);
+        int x = cell % this.width;
+        int y = cell / this.width;
+        for (int direction = 0; direction < 4; direction++) {
+            int nx = x + DX[direction];
+            int ny = y + DY[direction];
+            while (nx >= 0 && nx < this.width && ny >= 0 && ny < this.height
+                    && this.walkable[ny * this.width + nx]) {
+                blast(ny * this.width + nx);
+                nx += DX[direction];
+                ny += DY[direction];
+            }
+        }
+    }
+
+    private void blast(int cell) {
+        for (int player = 0; player < 2; player++) {
+            if (isAlive(player) && this.state[PLAYER_CELL + player] == cell) hitPlayer(player);
+        }
+        for (int bug = 0; bug < this.state[BUG_COUNT]; ) {
+            if (this.state[this.bugBase + bug * BUG_FIELDS] == cell) {
+                removeBug(bug);
+            } else {
+                bug++;
+            }
+        }
+    }
+
+    private void removeBug(int bug) {
+        int last = this.state[BUG_COUNT] - 1;
+        int index = this.bugBase + bug * BUG_FIELDS;
+        this.hash ^= bugKey(this.state[index + 2], this.state[index], this.state[index + 1]);
+        int lastIndex = this.bugBase + last * BUG_FIELDS;
+        for (int i = 0; i < BUG_FIELDS; i++) set(index + i, this.state[lastIndex + i]);
+        set(BUG_COUNT, last);
+    }
+
+    /**
+     * Returns the Zobrist key of a bug. The cell it came from is stored
+     * as the move leading back to it, so every bug needs just a few keys.
+     */
+    private long bugKey(int type, int cell, int previous) {
+        int heading = 0;
+        if (previous != -1) {
+            for (int move = 0; move < MOVE_COUNT; move++) {
+                if (getMoveTarget(cell, move) == previous) {
+                    heading = move + 1;
+                    break;
+                }
+            }
+        }
+        return this.zobrist.bug(type, heading, cell);
+    }
+
+    private void removeTicking(int bomb) {
+        int last = this.state[TICKING_COUNT] - 1;
+        int index = this.tickingBase + bomb * TICKING_FIELDS;
+        this.hash ^= this.zobrist.ticking(this.state[index], this.state[index + 1]);
+        int lastIndex = this.tickingBase + last * TICKING_FIELDS;
+        for (int i = 0; i < TICKING_FIELDS; i++) set(index + i, this.state[lastIndex + i]);
+        set(TICKING_COUNT, last);
+    }
+
+    /**
+     * Default bug movement: step to the neighbouring cell closest to the
+     * nearest player in a straight line, without turning back unless
+     * the bug is in a dead end.
+     */
+    private int chaseClosestPlayer(GameSimulator simulator, int bug) {
+        int cell = getBugCell(bug);
+        int previous = getBugPreviousCell(bug);
+        int targetX = -1;
+        int targetY = -1;
+        int targetDistance = Integer.MAX_VALUE;
+        for (int player = 0; player < 2; player++) {
+            if (!isAlive(player)) continue;
+            int playerCell = getPlayerCell(player);
+            int distance = manhattan(cell, playerCell % this.width, playerCell / this.width);
+            if (distance < targetDistance) {
+                targetDistance = distance;
+                targetX = playerCell % this.width;
+                targetY = playerCell / this.width;
+            }
+        }
+        if (targetX == -1) return cell;
+
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int move = 0; move < 4; move++) {
+            int next = getMoveTarget(cell, move);
+            if (next == -1 || next == previous) continue;
+            int distance = manhattan(next, targetX, targetY);
+            if (distance < bestDistance) {
+                best = next;
+                bestDistance = distance;
+            }
+        }
+        if (best == -1) return previous != cell && previous != -1 ? previous : cell;
+        return best;
+    }
+
+    private int manhattan(int cell, int x, int y) {
+        return Math.abs(cell % this.width - x) + Math.abs(cell / this.width - y);
+    }
+
+    /**
+     * Returns the cell reached from the cell with given move,
+     * -1 if the move is not possible
+     * @param cell Id of the cell
+     * @param move MoveType ordinal
+     */
+    public int getMoveTarget(int cell, int move) {
+        return this.moveTarget[cell * MOVE_COUNT + move];
+    }
+
+    public boolean isWalkable(int cell) {
+        return this.walkable[cell];
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    public int getCellCount() {
+        return this.cellCount;
+    }
+
+    public int getPlayerCell(int player) {
+        return this.state[PLAYER_CELL + player];
+    }
+
+    public int getSnippets(int player) {
+        return this.state[PLAYER_SNIPPETS + player];
+    }
+
+    public int getBombs(int player) {
+        return this.state[PLAYER_BOMBS + player];
+    }
+
+    public boolean isAlive(int player) {
+        return (this.state[ALIVE] & (1 << player)) != 0;
+    }
+
+    public int getTick() {
+        return this.state[TICK];
+    }
+
+    public int getBugCount() {
+        return this.state[BUG_COUNT];
+    }
+
+    public int getBugCell(int bug) {
+        return this.state[this.bugBase + bug * BUG_FIELDS];
+    }
+
+    public int getBugPreviousCell(int bug) {
+        return this.state[this.bugBase + bug * BUG_FIELDS + 1];
+    }
+
+    public int getBugType(int bug) {
+        return this.state[this.bugBase + bug * BUG_FIELDS + 2];
+    }
+
+    public int getTickingBombCount() {
+        return this.state[TICKING_COUNT];
+    }
+
+    public int getTickingBombCell(int bomb) {
+        return this.state[this.tickingBase + bomb * TICKING_FIELDS];
+    }
+
+    public int getTickingBombTicks(int bomb) {
+        return this.state[this.tickingBase + bomb * TICKING_FIELDS + 1];
+    }
+
+    public boolean hasSnippet(int cell) {
+        return (this.state[this.cellBase + cell] & ITEM_SNIPPET) != 0;
+    }
+
+    public boolean hasBomb(int cell) {
+        return (this.state[this.cellBase + cell] & ITEM_BOMB) != 0;
+    }
+
+    public int getSnippetCount() {
+        return this.state[SNIPPET_COUNT];
+    }
+
+    /**
+     * Returns how many applies can currently be undone
+     */
+    public int getDepth() {
+        return this.frameCount;
+    }
+}
@@ -0,0 +1,88 @@
+package field;
+
+import java.util.SplittableRandom;
+
+/**
+ * field.Zobrist
+ *
+ * Random 64-bit keys for every feature of a game state: player positions,
+ * snippet and bomb counts, items on cells, bugs and ticking bombs.
+ * A bug is keyed by its type, its cell and the direction it came from,
+ * because bugs don't turn back, so the direction decides where they go next.
+ * The hash of a state is the XOR of the keys of its features,
+ * so a change of one feature updates the hash with two XORs.
+ *
+ * @author Marek Gargas
+ */
+public final class Zobrist {
+
+    public static final int MAX_COUNT = 64; // snippet and bomb counts are capped for hashing
+    public static final int MAX_TICKS = 8;
+    public static final int BUG_TYPES = 4;
+    public static final int BUG_HEADINGS = 6; // unknown, or the move from the bug's cell back to where it came from
+
+    private static final long SEED = 0x5DEECE66DL;
+
+    private final int cellCount;
+    private final long[] playerCell;
+    private final long[] playerSnippets;
+    private final long[] playerBombs;
+    private final long[] alive;
+    private final long[] snippet;
+    private final long[] bomb;
+    private final long[] bug;
+    private final long[] ticking;
+
+    public Zobrist(int cellCount) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        this.cellCount = cellCount;
+        this.playerCell = keys(random, 2 * cellCount);
+        this.playerSnippets = keys(random, 2 * MAX_COUNT);
+        this.playerBombs = keys(random, 2 * MAX_COUNT);
+        this.alive = keys(random, 4);
+        this.snippet = keys(random, cellCount);
+        this.bomb = keys(random, cellCount);
+        this.bug = keys(random, BUG_TYPES * BUG_HEADINGS * cellCount);
+        this.ticking = keys(random, MAX_TICKS * cellCount);
+    }
+
+    private static long[] keys(SplittableRandom random, int count) {
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = random.nextLong();
+        }
+        return keys;
+    }
+
+    public long playerCell(int player, int cell) {
+        return cell == -1 ? 0L : this.playerCell[player * this.cellCount + cell];
+    }
+
+    public long playerSnippets(int player, int count) {
+        return this.playerSnippets[player * MAX_COUNT + Math.min(count, MAX_COUNT - 1)];
+    }
+
+    public long playerBombs(int player, int count) {
+        return this.playerBombs[player * MAX_COUNT + Math.min(count, MAX_COUNT - 1)];
+    }
+
+    public long alive(int mask) {
+        return this.alive[mask];
+    }
+
+    public long snippet(int cell) {
+        return this.snippet[cell];
+    }
+
+    public long bomb(int cell) {
+        return this.bomb[cell];
+    }
+
+    public long bug(int type, int heading, int cell) {
+        return this.bug[(type * BUG_HEADINGS + heading) * this.cellCount + cell];
+    }
+
+    public long ticking(int cell, int ticks) {
+        return this.ticking[Math.min(ticks, MAX_TICKS - 1) * this.cellCount + cell];
+    }
+}
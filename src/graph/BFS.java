@@ -1,65 +1,225 @@
 package graph;
 
+import field.Field;
+import instrument.EventKind;
+import instrument.Events;
+import instrument.Instrumentation;
+import instrument.Phase;
+import move.MoveType;
+
 import java.awt.*;
 import java.util.*;
-import java.util.stream.Collectors;
 /**
  * graph.BFS
  *
- * Class responsible for creating BFS graph with start point
- * that is passed in constructor. It also contains all methods that
- * help traverse this graph and find the best path.
+ * Class responsible for running BFS on the grid graph from a start point
+ * that is passed to init. It also contains all methods that
+ * help traverse the result and find the best path.
+ * Distances and parents are kept in int arrays that are reused
+ * between searches, a generation counter tells which entries
+ * belong to the latest search.
  *
  * @author Marek Gargas
  */
 public class BFS {
 
-    private Point start;
-    private HashMap<Point,Vertex> BFSGraph;
+    private final GridGraph graph;
+    private final int[] distance;
+    private final int[] parent;
+    private final int[] firstStep; // first cell after start on the path to the cell
+    private final int[] generationOf;
+    private final int[] queue;
+    private final int[] targetGeneration;
+    private final int[] foundTargets;
+    private int generation;
+    private int targetStamp;
+    private int foundCount;
+    private int start = -1;
+
+    public BFS(GridGraph graph)
+    {
+        this.graph = graph;
+        int cellCount = graph.getCellCount();
+        this.distance = new int[cellCount];
+        this.parent = new int[cellCount];
+        this.firstStep = new int[cellCount];
+        this.generationOf = new int[cellCount];
+        this.queue = new int[cellCount];
+        this.targetGeneration = new int[cellCount];
+        this.foundTargets = new int[cellCount];
+    }
 
-    public BFS(Point start)
+    /**
+     * Runs BFS from the start point, only walls block the way.
+     * @param start Start point of the search
+     */
+    public void init(Point start)
+    {
+        search(toCell(start), null, null, 0, 0);
+    }
+
+    /**
+     * Runs BFS from the start point.
+     * @param start Start point of the search
+     * @param field Current field, used to find bugs
+     * @param bugIsWall treats each bug as wall when we pass true
+     */
+    public void init(Point start, Field field, boolean bugIsWall)
     {
-        this.start = start;
+        search(toCell(start), bugIsWall ? field : null, null, 0, 0);
     }
 
     /**
-     * Creates BFS graph out of the graph passed as an argument.
-     * @param graph HashMap parsed by GraphParser
+     * Runs BFS from the start point, skipping every cell that a bug
+     * can reach before the player does, see DangerMap.isSafe.
+     * @param start Start point of the search
+     * @param dangerMap Danger of the current bug positions
+     * @param horizon Maximal amount of ticks a bug is assumed to chase the player,
+     *                0 treats only the cells with bugs as walls
      */
-    public void init(HashMap<Point,Vertex> graph) {
-        HashMap<Point, Vertex> BFSGraph = new HashMap<>(graph);
-        Queue<Point> queue = new LinkedList<>();
-
-        Vertex actual = BFSGraph.get(start);
-        actual.setVisited(true);
-        BFSGraph.put(start, actual);
-        queue.add(start);
-        while (!queue.isEmpty()) {
-            if(!BFSGraph.containsKey(queue.element()))
+    public void init(Point start, DangerMap dangerMap, int horizon)
+    {
+        search(toCell(start), null, dangerMap, horizon, 0);
+    }
+
+    /**
+     * Runs BFS from the start point only until the closest targets are found,
+     * which usually explores just a part of the field. Found targets can be read
+     * with getFoundTarget, distances and moves to them with distanceTo and moveTo.
+     * @param start Start point of the search
+     * @param targets Positions of the targets, for example snippets
+     * @param limit Amount of closest targets to find
+     * @param dangerMap Danger of the current bug positions, null to ignore bugs
+     * @param horizon Maximal amount of ticks a bug is assumed to chase the player
+     * @return Amount of targets found, at most limit
+     */
+    public int findNearest(Point start, ArrayList<Point> targets, int limit, DangerMap dangerMap, int horizon)
+    {
+        if(++targetStamp == 0)
+        {
+            Arrays.fill(targetGeneration, 0);
+            targetStamp = 1;
+        }
+        for(Point target : targets)
+        {
+            int cell = toCell(target);
+            if(cell != -1) targetGeneration[cell] = targetStamp;
+        }
+        search(toCell(start), null, dangerMap, horizon, Math.max(limit, 1));
+        return foundCount;
+    }
+
+    /**
+     * Returns target found by the last findNearest, ordered by distance
+     * @param index Index of the target, smaller than amount of targets found
+     * @return Id of the target cell
+     */
+    public int getFoundTarget(int index)
+    {
+        return foundTargets[index];
+    }
+
+    /**
+     * Runs BFS from the start cell, only walls block the way.
+     * @param startCell Id of the start cell
+     */
+    public void search(int startCell)
+    {
+        search(startCell, null, null, 0, 0);
+    }
+
+    private void search(int startCell, Field bugField, DangerMap dangerMap, int horizon, int targetLimit)
+    {
+        Object event = Events.begin(EventKind.BFS);
+        long startTime = Instrumentation.start();
+        int expanded = expand(startCell, bugField, dangerMap, horizon, targetLimit);
+        Instrumentation.stop(Phase.BFS, startTime);
+        Events.commitBfs(event, Instrumentation.getRound(), expanded, foundCount);
+    }
+
+    /**
+     * Runs the search itself
+     * @return Amount of cells taken from the queue
+     */
+    private int expand(int startCell, Field bugField, DangerMap dangerMap, int horizon, int targetLimit)
+    {
+        foundCount = 0;
+        if(++generation == 0) // counter overflowed, old entries could look valid again
+        {
+            Arrays.fill(generationOf, 0);
+            generation = 1;
+        }
+        start = startCell;
+        if(startCell == -1) return 0;
+
+        int head = 0;
+        int tail = 0;
+        visit(startCell, -1, 0, -1);
+        queue[tail++] = startCell;
+        while(head < tail)
+        {
+            int actual = queue[head++];
+            if(targetLimit > 0 && targetGeneration[actual] == targetStamp)
             {
-                queue.remove();
+                foundTargets[foundCount++] = actual;
+                if(foundCount == targetLimit) return head;
             }
-            else {
-                actual = BFSGraph.get(queue.element());
-                queue.remove();
-                if (actual.getAdjacencyList().size() > 0) {
-                    for (Vertex neighbour : actual.getAdjacencyList()) {
-                        if(BFSGraph.containsKey(neighbour.getPosition())) {
-                            neighbour = BFSGraph.get(neighbour.getPosition());
-                            if (!neighbour.getVisited()) {
-                                neighbour.setVisited(true);
-                                neighbour.setPrevious(actual);
-                                queue.add(neighbour.getPosition());
-                                BFSGraph.put(neighbour.getPosition(), neighbour);
-
-                            }
-                        }
-                    }
-                }
+            int nextDistance = distance[actual] + 1;
+            for(int edge = graph.getEdgeStart(actual); edge < graph.getEdgeEnd(actual); edge++)
+            {
+                int neighbour = graph.getNeighbour(edge);
+                if(generationOf[neighbour] == generation) continue;
+                if(bugField != null && (bugField.getCell(neighbour) & Field.BUG) != 0) continue;
+                if(dangerMap != null && !dangerMap.isSafe(neighbour, nextDistance, horizon)) continue;
+                visit(neighbour, actual, nextDistance, actual == startCell ? neighbour : firstStep[actual]);
+                queue[tail++] = neighbour;
             }
         }
-        this.BFSGraph = BFSGraph;
+        return head;
+    }
+
+    private void visit(int cell, int previous, int cellDistance, int cellFirstStep)
+    {
+        generationOf[cell] = generation;
+        distance[cell] = cellDistance;
+        parent[cell] = previous;
+        firstStep[cell] = cellFirstStep;
+    }
+
+    /**
+     * Returns distance from start to the cell
+     * or -1 if it is impossible to get there.
+     * @param cell Id of the destination cell
+     */
+    public int distanceTo(int cell)
+    {
+        if(cell == -1 || generationOf[cell] != generation) return -1;
+        return distance[cell];
+    }
+
+    /**
+     * Returns first cell on the path to the cell or -1
+     * if the cell can't be reached or player is on this cell.
+     * @param cell Id of the destination cell
+     */
+    public int firstStepTo(int cell)
+    {
+        if(cell == -1 || generationOf[cell] != generation) return -1;
+        return firstStep[cell];
+    }
+
+    /**
+     * Returns move that has to be made to get closer to the cell
+     * or MoveType.PASS if it can't be reached or player is on this cell.
+     * @param cell Id of the destination cell
+     */
+    public MoveType moveTo(int cell)
+    {
+        int step = firstStepTo(cell);
+        if(step == -1) return MoveType.PASS;
+        return graph.getMove(start, step);
     }
+
     /**
      * Returns path from BFS graph's start to  the point passed as argument
      * or null if this path does not exist.
@@ -67,19 +227,13 @@ public class BFS {
      */
     public ArrayList<Point> getPathToStart(Point point)
     {
+        int cell = toCell(point);
+        if(distanceTo(cell) == -1) return null;
         ArrayList<Point> path = new ArrayList<>();
-        while(!point.equals(start))
+        while(cell != start)
         {
-            path.add(point);
-            if(!BFSGraph.containsKey(point))
-            {
-                return null;
-            }
-            Vertex vertex = BFSGraph.get(point);
-            if(vertex.getPrevious()==null) {
-                return null;
-            }
-            point=vertex.getPrevious().getPosition();
+            path.add(new Point(graph.getX(cell), graph.getY(cell)));
+            cell = parent[cell];
         }
         Collections.reverse(path);
         return path;
@@ -92,8 +246,7 @@ public class BFS {
      */
     public int getDistanceToStart(Point point)
     {
-        if(getPathToStart(point)==null) return -1;
-        return getPathToStart(point).size();
+        return distanceTo(toCell(point));
     }
 
     /**
@@ -104,27 +257,24 @@ public class BFS {
      */
     public Point getClosestObjectPosition(ArrayList<Point> objectPositions)
     {
-        if(objectPositions==null || objectPositions.size()==0)
+        if(objectPositions==null)
         {
             return null;
         }
-        objectPositions = objectPositions.stream().
-                filter(position->getDistanceToStart(position)!=-1).
-                collect(Collectors.toCollection(ArrayList::new)); //only objects that can be reached in a path
-        if(objectPositions.size()==0)
-        {
-            return null;
-        }
-        Point closestObjectPosition = objectPositions.get(0);
+        Point closestObjectPosition = null;
+        int closestDistance = Integer.MAX_VALUE;
         for(Point objectPosition : objectPositions)
         {
-            if(getDistanceToStart(objectPosition) < getDistanceToStart(closestObjectPosition))
+            int objectDistance = getDistanceToStart(objectPosition);
+            if(objectDistance != -1 && objectDistance < closestDistance)
             {
                 closestObjectPosition = objectPosition;
+                closestDistance = objectDistance;
             }
         }
         return closestObjectPosition;
     }
+
     /**
      * Returns first position in path or
      * null if endPosition is not accessible
@@ -133,8 +283,26 @@ public class BFS {
      */
     public Point getNextPosition(Point endPosition)
     {
-        if(getPathToStart(endPosition)==null) return null; // you can't reach this point
-        if(getPathToStart(endPosition).size()==0) return null; //you are on this position
-        return getPathToStart(endPosition).get(0);
+        int step = firstStepTo(toCell(endPosition));
+        if(step == -1) return null;
+        return new Point(graph.getX(step), graph.getY(step));
+    }
+
+    /**
+     * Returns move that leads to the first position in path or
+     * MoveType.PASS if endPosition is not accessible
+     * or player is on this position
+     * @param endPosition Point that is our destination
+     */
+    public MoveType getNextMove(Point endPosition)
+    {
+        return moveTo(toCell(endPosition));
+    }
+
+    private int toCell(Point point)
+    {
+        if(point == null || point.x < 0 || point.x >= graph.getWidth()
+                || point.y < 0 || point.y >= graph.getHeight()) return -1;
+        return graph.getCellId(point.x, point.y);
     }
 }
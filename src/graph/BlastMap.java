@@ -0,0 +1,159 @@
+package graph;
+
+import field.Field;
+
+import java.util.Arrays;
+
+/**
+ * graph.BlastMap
+ *
+ * Class responsible for knowing which cells explode in which round.
+ * Every ticking bomb casts rays in all four directions that stop
+ * at walls and the edge of the field. Explosions are stored by the round
+ * they happen in, so bombs counting down change nothing and only bombs
+ * that appear or disappear are cast again when the next field arrives.
+ * A bomb explodes at most 5 rounds after it was dropped, so a few
+ * slots per cell indexed by the round are enough.
+ *
+ * @author Marek Gargas
+ */
+public class BlastMap {
+
+    public static final int NONE = -1;
+
+    private static final int SLOTS = 8; // must be a power of two bigger than the maximal bomb ticks
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+
+    private final GridGraph graph;
+    private final int[] blasts; // cell * SLOTS + round % SLOTS -> amount of bombs exploding over the cell
+    private final int[] bombRounds; // round the bomb on the cell explodes in, NONE if there is no ticking bomb
+    private final int[] blastCells;
+    private int round = NONE;
+
+    public BlastMap(GridGraph graph)
+    {
+        this.graph = graph;
+        this.blasts = new int[graph.getCellCount() * SLOTS];
+        this.bombRounds = new int[graph.getCellCount()];
+        this.blastCells = new int[graph.getWidth() + graph.getHeight()];
+        Arrays.fill(bombRounds, NONE);
+    }
+
+    /**
+     * Updates the map to the field of given round. When the field follows
+     * the previous update only its changed cells are looked at,
+     * otherwise the map is built again. Updating twice in the same round does nothing.
+     * @param field Current field, it has to match the graph
+     * @param round Number of the current round
+     */
+    public void update(Field field, int round)
+    {
+        if(round == this.round) return;
+        if(this.round == NONE || round != this.round + 1)
+        {
+            Arrays.fill(blasts, 0);
+            Arrays.fill(bombRounds, NONE);
+            for(int cell=0;cell<graph.getCellCount();cell++)
+            {
+                updateBomb(cell, field.getBombTicks(cell), round);
+            }
+        }
+        else
+        {
+            int[] changedCells = field.getChangedCells();
+            for(int i=0;i<field.getChangedCellCount();i++)
+            {
+                updateBomb(changedCells[i], field.getBombTicks(changedCells[i]), round);
+            }
+        }
+        this.round = round;
+    }
+
+    private void updateBomb(int cell, int ticks, int round)
+    {
+        int explosionRound = ticks > 0 ? round + ticks : NONE;
+        //The same bomb counting down keeps its round
+        if(explosionRound == bombRounds[cell]) return;
+        if(bombRounds[cell] != NONE) cast(cell, bombRounds[cell], -1);
+        if(explosionRound != NONE) cast(cell, explosionRound, 1);
+        bombRounds[cell] = explosionRound;
+    }
+
+    /**
+     * Adds or removes the explosion of a bomb to all cells its blast reaches
+     */
+    private void cast(int bombCell, int explosionRound, int amount)
+    {
+        int slot = explosionRound & (SLOTS - 1);
+        int count = getBlastCells(bombCell, blastCells);
+        for(int i=0;i<count;i++)
+        {
+            blasts[blastCells[i] * SLOTS + slot] += amount;
+        }
+    }
+
+    /**
+     * Stores all cells the blast of a bomb reaches, the bomb's cell first
+     * @param bombCell Id of the cell with the bomb
+     * @param cells Buffer for the cells, width + height of the field is enough
+     * @return Amount of cells
+     */
+    public int getBlastCells(int bombCell, int[] cells)
+    {
+        int count = 0;
+        cells[count++] = bombCell;
+        int x = graph.getX(bombCell);
+        int y = graph.getY(bombCell);
+        for(int direction=0;direction<4;direction++)
+        {
+            for(int nx = x + DX[direction], ny = y + DY[direction];
+                nx >= 0 && nx < graph.getWidth() && ny >= 0 && ny < graph.getHeight();
+                nx += DX[direction], ny += DY[direction])
+            {
+                int cell = graph.getCellId(nx, ny);
+                if(!graph.isWalkable(cell)) break;
+                cells[count++] = cell;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether the cell explodes given amount of ticks after
+     * the round of the last update.
+     * @param cell Id of the cell
+     * @param ticks Ticks from now, explosions are only known for less than 8 ticks
+     */
+    public boolean explodesIn(int cell, int ticks)
+    {
+        if(ticks <= 0 || ticks >= SLOTS) return false;
+        return blasts[cell * SLOTS + ((round + ticks) & (SLOTS - 1))] > 0;
+    }
+
+    /**
+     * Returns ticks until the cell explodes for the first time or NONE
+     * @param cell Id of the cell
+     */
+    public int ticksUntilExplosion(int cell)
+    {
+        for(int ticks=1;ticks<SLOTS;ticks++)
+        {
+            if(explodesIn(cell, ticks)) return ticks;
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns round the bomb on the cell explodes in, NONE if there is no ticking bomb
+     * @param cell Id of the cell
+     */
+    public int getBombRound(int cell)
+    {
+        return bombRounds[cell];
+    }
+
+    public int getRound() {
+        return round;
+    }
+}
@@ -0,0 +1,126 @@
+package graph;
+
+import move.MoveType;
+
+import java.util.Arrays;
+
+/**
+ * graph.BombPlanner
+ *
+ * Class responsible for deciding whether a bomb should be dropped
+ * together with my move and how many ticks it should get. A bomb
+ * is dropped on my cell before I move, so for every tick count
+ * from 2 to 5 the blast of a bomb on my cell is checked: I have to
+ * get out of it in time without meeting a predicted bug or another
+ * explosion on the way, and it is scored by the predicted bugs close
+ * to me it hits and by whether my opponent can leave it in time.
+ * Both ways out are searched by the SpaceTimeSearch of the round,
+ * over the few ticks until the bomb explodes.
+ *
+ * @author Marek Gargas
+ */
+public class BombPlanner {
+
+    public static final int NO_BOMB = -1;
+    public static final int MIN_TICKS = 2;
+    public static final int MAX_TICKS = 5;
+
+    private static final int OPPONENT_HIT_VALUE = 100;
+    private static final int BUG_HIT_VALUE = 40;
+    private static final int MIN_VALUE = 40; // a bomb is worth dropping for a bug or my opponent
+    private static final int SPARE_TICKS = 1; // I want to be out of the blast a tick before it explodes
+    private static final int BUG_THREAT_DISTANCE = 6; // bugs further away are not worth a bomb
+
+    private final GridGraph graph;
+    private final DistanceTable distanceTable;
+    private final BlastMap blastMap;
+    private final BugPredictor bugPredictor;
+    private final SpaceTimeSearch spaceTimeSearch;
+    private final int[] blastCells;
+    private final int[] blastGeneration;
+    private int generation;
+
+    /**
+     * @param spaceTimeSearch Search that is reset to the bug predictions and the blast map every round
+     */
+    public BombPlanner(DistanceTable distanceTable, BlastMap blastMap, BugPredictor bugPredictor,
+                       SpaceTimeSearch spaceTimeSearch)
+    {
+        this.graph = distanceTable.getGraph();
+        this.distanceTable = distanceTable;
+        this.blastMap = blastMap;
+        this.bugPredictor = bugPredictor;
+        this.spaceTimeSearch = spaceTimeSearch;
+        this.blastCells = new int[graph.getWidth() + graph.getHeight()];
+        this.blastGeneration = new int[graph.getCellCount()];
+    }
+
+    /**
+     * Returns ticks of the bomb worth dropping together with my move.
+     * The blast map, the bug predictions and the space time search have to be updated to the current field.
+     * @param myCell Id of my cell
+     * @param move Move I am going to make
+     * @param opponentCell Id of my opponent's cell, -1 if he is not on the field
+     * @param bombs Amount of bombs I have
+     * @return Ticks 2 - 5 or NO_BOMB if no bomb is worth dropping
+     */
+    public int plan(int myCell, MoveType move, int opponentCell, int bombs)
+    {
+        if(bombs <= 0 || myCell == -1 || move == MoveType.PASS) return NO_BOMB;
+        if(blastMap.getBombRound(myCell) != BlastMap.NONE) return NO_BOMB; // there is a bomb already
+        int nextCell = getNextCell(myCell, move);
+        if(nextCell == -1) return NO_BOMB;
+
+        if(++generation == 0) // counter overflowed, old blasts could look valid again
+        {
+            Arrays.fill(blastGeneration, 0);
+            generation = 1;
+        }
+        int count = blastMap.getBlastCells(myCell, blastCells);
+        for(int i=0;i<count;i++) blastGeneration[blastCells[i]] = generation;
+        boolean opponentInBlast = isInBlast(opponentCell);
+
+        int bestTicks = NO_BOMB;
+        int bestValue = MIN_VALUE - 1;
+        for(int ticks=MIN_TICKS;ticks<=MAX_TICKS;ticks++)
+        {
+            //I stand on the next cell after this tick and have to be out of the blast a bit earlier
+            if(!spaceTimeSearch.canEscape(nextCell, 1, blastCells, count, ticks - SPARE_TICKS, ticks)) continue;
+            int value = 0;
+            if(opponentInBlast && !spaceTimeSearch.canEscape(opponentCell, 0, blastCells, count, ticks, ticks))
+            {
+                value = OPPONENT_HIT_VALUE;
+            }
+            if(ticks <= bugPredictor.getTicks())
+            {
+                for(int bug=0;bug<bugPredictor.getBugCount();bug++)
+                {
+                    int distance = distanceTable.distance(bugPredictor.getBugCell(bug, 0), myCell);
+                    if(distance == -1 || distance > BUG_THREAT_DISTANCE) continue;
+                    if(isInBlast(bugPredictor.getBugCell(bug, ticks))) value += BUG_HIT_VALUE;
+                }
+            }
+            //Fewer ticks win on equal values, there is less time to run away
+            if(value > bestValue)
+            {
+                bestValue = value;
+                bestTicks = ticks;
+            }
+        }
+        return bestTicks;
+    }
+
+    private int getNextCell(int cell, MoveType move)
+    {
+        for(int edge = graph.getEdgeStart(cell); edge < graph.getEdgeEnd(cell); edge++)
+        {
+            if(graph.getMove(edge) == move) return graph.getNeighbour(edge);
+        }
+        return -1;
+    }
+
+    private boolean isInBlast(int cell)
+    {
+        return cell != -1 && blastGeneration[cell] == generation;
+    }
+}
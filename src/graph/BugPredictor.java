@@ -0,0 +1,246 @@
+package graph;
+
+import field.BugMover;
+import field.Field;
+import field.GameSimulator;
+
+import java.util.Arrays;
+
+/**
+ * graph.BugPredictor
+ *
+ * Class responsible for predicting where the bugs go. Every type
+ * of enemy AI chases its own target cell:
+ * CHASE the closest player, PREDICT the cell a few steps in front
+ * of the closest player, LEVER the cell on the other side of the closest
+ * player than the second player and FAR_CHASE the farthest player.
+ * A bug steps to the neighbour that is closest to its target
+ * and never turns back, unless it is in a dead end.
+ * The rules are replayed for a number of ticks with the players standing
+ * still, the cells taken by bugs are stored as a bitset for every tick,
+ * so searches can ask whether a bug stands on a cell in constant time.
+ * It's also the bug mover of the GameSimulator.
+ *
+ * @author Marek Gargas
+ */
+public class BugPredictor implements BugMover {
+
+    public static final int CHASE = 0;
+    public static final int PREDICT = 1;
+    public static final int LEVER = 2;
+    public static final int FAR_CHASE = 3;
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final int PREDICT_AHEAD = 4;
+
+    private final DistanceTable distanceTable;
+    private final GridGraph graph;
+    private final int words; // longs in the bitset of one tick
+    private final int[] firstTicks; // first predicted tick a bug stands on the cell
+
+    private long[] occupied = new long[0]; // tick * words + cell / 64
+    private int[] bugCells = new int[0]; // tick * bugCount + bug
+    private int bugCount;
+    private int ticks;
+
+    public BugPredictor(DistanceTable distanceTable)
+    {
+        this.distanceTable = distanceTable;
+        this.graph = distanceTable.getGraph();
+        this.words = (graph.getCellCount() + 63) / 64;
+        this.firstTicks = new int[graph.getCellCount()];
+        Arrays.fill(firstTicks, UNREACHABLE);
+    }
+
+    /**
+     * Predicts positions of all bugs of the field for given amount of ticks.
+     * Bugs that spawn later are not predicted.
+     * @param field Current field, it has to match the graph
+     * @param ticks Amount of ticks to predict
+     */
+    public void predict(Field field, int ticks)
+    {
+        int count = field.getBugCount();
+        if(occupied.length < (ticks + 1) * words) occupied = new long[(ticks + 1) * words];
+        if(bugCells.length < (ticks + 1) * count) bugCells = new int[(ticks + 1) * count];
+        Arrays.fill(occupied, 0, (ticks + 1) * words, 0L);
+        Arrays.fill(firstTicks, UNREACHABLE);
+        this.bugCount = count;
+        this.ticks = ticks;
+
+        int me = field.getPlayerCell(0);
+        int opponent = field.getPlayerCell(1);
+        int previousMe = field.getPreviousPlayerCell(0);
+        int previousOpponent = field.getPreviousPlayerCell(1);
+        for(int bug=0;bug<count;bug++)
+        {
+            int cell = field.getBugCell(bug);
+            int previous = field.getBugPreviousCell(bug);
+            int type = field.getBugType(bug);
+            for(int tick=0;tick<=ticks;tick++)
+            {
+                if(tick > 0)
+                {
+                    int next = nextCell(type, cell, previous, me, previousMe, opponent, previousOpponent);
+                    previous = cell;
+                    cell = next;
+                }
+                bugCells[tick * count + bug] = cell;
+                occupied[tick * words + (cell >>> 6)] |= 1L << cell;
+                if(firstTicks[cell] > tick) firstTicks[cell] = tick;
+            }
+        }
+    }
+
+    /**
+     * Returns whether a predicted bug stands on the cell at given tick
+     * @param cell Id of the cell
+     * @param tick Tick 0 - getTicks(), 0 is the current field
+     */
+    public boolean isOccupied(int cell, int tick)
+    {
+        return (occupied[tick * words + (cell >>> 6)] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Returns first tick a predicted bug stands on the cell
+     * or UNREACHABLE if no bug gets there within the predicted ticks.
+     * @param cell Id of the cell
+     */
+    public int firstTickAt(int cell)
+    {
+        return firstTicks[cell];
+    }
+
+    /**
+     * Returns predicted cell of a bug
+     * @param bug Index of the bug in the field
+     * @param tick Tick 0 - getTicks()
+     */
+    public int getBugCell(int bug, int tick)
+    {
+        return bugCells[tick * bugCount + bug];
+    }
+
+    public int getBugCount() {
+        return bugCount;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Moves bugs of the simulator with the same rules. The simulator
+     * doesn't know where the players came from, so PREDICT bugs chase
+     * the player itself. Uses no buffers, so simulators on different
+     * threads can share one predictor.
+     */
+    @Override
+    public int nextCell(GameSimulator simulator, int bug)
+    {
+        int me = simulator.isAlive(0) ? simulator.getPlayerCell(0) : -1;
+        int opponent = simulator.isAlive(1) ? simulator.getPlayerCell(1) : -1;
+        return nextCell(simulator.getBugType(bug), simulator.getBugCell(bug), simulator.getBugPreviousCell(bug),
+                me, me, opponent, opponent);
+    }
+
+    /**
+     * Returns the cell a bug steps to
+     * @param type Type of enemy AI of the bug
+     * @param cell Id of the bug's cell
+     * @param previous Id of the cell the bug came from, the same as cell if it has just spawned
+     * @param player0,previousPlayer0 Cell of player 0 and the cell it came from, -1 if not on the field
+     * @param player1,previousPlayer1 Cell of player 1 and the cell it came from, -1 if not on the field
+     */
+    public int nextCell(int type, int cell, int previous, int player0, int previousPlayer0, int player1, int previousPlayer1)
+    {
+        int distance0 = playerDistance(cell, player0);
+        int distance1 = playerDistance(cell, player1);
+        if(distance0 == UNREACHABLE && distance1 == UNREACHABLE) return cell;
+        boolean closest0 = distance0 <= distance1;
+        int closest = closest0 ? player0 : player1;
+        int other = closest0 ? player1 : player0;
+
+        int target;
+        int targetX = -1;
+        int targetY = -1;
+        switch(type)
+        {
+            case PREDICT:
+                target = cellInFront(closest, closest0 ? previousPlayer0 : previousPlayer1);
+                break;
+            case LEVER:
+                target = closest;
+                if(other != -1)
+                {
+                    targetX = 2 * graph.getX(closest) - graph.getX(other);
+                    targetY = 2 * graph.getY(closest) - graph.getY(other);
+                    target = -1;
+                }
+                break;
+            case FAR_CHASE:
+                target = distance0 == UNREACHABLE || distance1 != UNREACHABLE && distance1 > distance0 ? player1 : player0;
+                break;
+            default:
+                target = closest;
+        }
+
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for(int edge = graph.getEdgeStart(cell); edge < graph.getEdgeEnd(cell); edge++)
+        {
+            int neighbour = graph.getNeighbour(edge);
+            if(neighbour == previous) continue;
+            int distance;
+            if(target != -1)
+            {
+                distance = distanceTable.distance(neighbour, target);
+                if(distance == -1) distance = UNREACHABLE - 1;
+            }
+            else
+            {
+                distance = Math.abs(graph.getX(neighbour) - targetX) + Math.abs(graph.getY(neighbour) - targetY);
+            }
+            if(distance < bestDistance)
+            {
+                best = neighbour;
+                bestDistance = distance;
+            }
+        }
+        //Dead end, the only way is back
+        if(best == -1) return previous;
+        return best;
+    }
+
+    private int playerDistance(int cell, int player)
+    {
+        int distance = distanceTable.distance(cell, player);
+        return distance == -1 ? UNREACHABLE : distance;
+    }
+
+    /**
+     * Returns the furthest walkable cell at most PREDICT_AHEAD steps
+     * in the direction the player moved last time.
+     */
+    private int cellInFront(int player, int previousPlayer)
+    {
+        if(previousPlayer == -1) return player;
+        int dx = graph.getX(player) - graph.getX(previousPlayer);
+        int dy = graph.getY(player) - graph.getY(previousPlayer);
+        if(Math.abs(dx) + Math.abs(dy) != 1) return player; // standing still or came through a gate
+        int x = graph.getX(player);
+        int y = graph.getY(player);
+        int target = player;
+        for(int step=0;step<PREDICT_AHEAD;step++)
+        {
+            x += dx;
+            y += dy;
+            if(x < 0 || x >= graph.getWidth() || y < 0 || y >= graph.getHeight()) break;
+            int cell = graph.getCellId(x, y);
+            if(!graph.isWalkable(cell)) break;
+            target = cell;
+        }
+        return target;
+    }
+}
@@ -0,0 +1,84 @@
+package graph;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * graph.DangerMap
+ *
+ * Class responsible for computing how many ticks a bug needs
+ * to reach each cell of the grid graph. It runs one BFS
+ * seeded from the positions of all bugs at once.
+ *
+ * @author Marek Gargas
+ */
+public class DangerMap {
+
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final GridGraph graph;
+    private final int[] ticks;
+    private final int[] queue;
+
+    public DangerMap(GridGraph graph)
+    {
+        this.graph = graph;
+        this.ticks = new int[graph.getCellCount()];
+        this.queue = new int[graph.getCellCount()];
+        Arrays.fill(ticks, UNREACHABLE);
+    }
+
+    /**
+     * Computes the danger of every cell from current bug positions.
+     * @param enemyPositions Positions of all bugs on the field
+     */
+    public void update(ArrayList<Point> enemyPositions)
+    {
+        Arrays.fill(ticks, UNREACHABLE);
+        int head = 0;
+        int tail = 0;
+        for(Point enemyPosition : enemyPositions)
+        {
+            int cell = graph.getCellId(enemyPosition.x, enemyPosition.y);
+            if(ticks[cell] == 0) continue; // more bugs on the same cell
+            ticks[cell] = 0;
+            queue[tail++] = cell;
+        }
+        while(head < tail)
+        {
+            int actual = queue[head++];
+            int nextTicks = ticks[actual] + 1;
+            for(int edge = graph.getEdgeStart(actual); edge < graph.getEdgeEnd(actual); edge++)
+            {
+                int neighbour = graph.getNeighbour(edge);
+                if(ticks[neighbour] != UNREACHABLE) continue;
+                ticks[neighbour] = nextTicks;
+                queue[tail++] = neighbour;
+            }
+        }
+    }
+
+    /**
+     * Returns how many ticks the closest bug needs to reach the cell,
+     * 0 if a bug is standing on it or UNREACHABLE if no bug can get there.
+     * @param cell Id of the cell
+     */
+    public int ticksUntilBug(int cell)
+    {
+        return ticks[cell];
+    }
+
+    /**
+     * Returns whether a player arriving at the cell after given amount of ticks
+     * can't be caught there. Bugs further than horizon ticks away are ignored,
+     * because nobody knows where they will go.
+     * @param cell Id of the cell
+     * @param arrival Ticks until the player gets to the cell
+     * @param horizon Maximal amount of ticks a bug is assumed to chase the player
+     */
+    public boolean isSafe(int cell, int arrival, int horizon)
+    {
+        return ticks[cell] > Math.min(arrival, horizon);
+    }
+}
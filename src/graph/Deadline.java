@@ -0,0 +1,90 @@
+package graph;
+
+import bot.BotState;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * graph.Deadline
+ *
+ * Class responsible for keeping track of the time that is left
+ * for the current move. The budget is taken from the timebank,
+ * so that the remaining time is spread over the remaining rounds.
+ *
+ * @author Marek Gargas
+ */
+public class Deadline {
+
+    private static final long SAFETY_MARGIN_MS = 30; // time needed to print the move
+    private static final long MIN_BUDGET_MS = 5;
+    private static final int MIN_SPREAD_ROUNDS = 10;
+
+    private final long startTime;
+    private final long endTime;
+    private volatile boolean cancelled;
+
+    public Deadline(long budgetMillis)
+    {
+        this.startTime = System.nanoTime();
+        this.endTime = startTime + budgetMillis * 1_000_000L;
+    }
+
+    /**
+     * Creates deadline that only expires when it is cancelled
+     */
+    public static Deadline untilCancelled()
+    {
+        return new Deadline(TimeUnit.DAYS.toMillis(1));
+    }
+
+    /**
+     * Creates deadline for the current move. Every move may use the time
+     * that is added to the timebank each move and a part of the saved time.
+     * @param state Current state, holds the timebank and round number
+     */
+    public static Deadline forMove(BotState state)
+    {
+        return new Deadline(getBudget(state.getTimebank(), state.getTimePerMove(),
+                state.getMaxRound() - state.getRoundNumber() + 1));
+    }
+
+    /**
+     * Returns time in milliseconds the current move may use
+     * @param timebank Time left in the timebank
+     * @param timePerMove Time added to the timebank every move
+     * @param roundsLeft Rounds left including the current one
+     */
+    static long getBudget(long timebank, long timePerMove, int roundsLeft)
+    {
+        long saved = Math.max(0, timebank - timePerMove);
+        long budget = timePerMove + saved / Math.max(roundsLeft, MIN_SPREAD_ROUNDS);
+        budget = Math.min(budget, timebank - SAFETY_MARGIN_MS);
+        return Math.max(budget, MIN_BUDGET_MS);
+    }
+
+    /**
+     * Returns whether there is no time left or the search was cancelled
+     */
+    public boolean isExpired()
+    {
+        return cancelled || System.nanoTime() >= endTime;
+    }
+
+    /**
+     * Stops every search that uses this deadline
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    public long getRemainingMillis()
+    {
+        return Math.max(0, (endTime - System.nanoTime()) / 1_000_000L);
+    }
+
+    public long getElapsedMillis()
+    {
+        return (System.nanoTime() - startTime) / 1_000_000L;
+    }
+}
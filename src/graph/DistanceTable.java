@@ -0,0 +1,105 @@
+package graph;
+
+import move.MoveType;
+
+import java.util.Arrays;
+
+/**
+ * graph.DistanceTable
+ *
+ * Class responsible for storing distances between all pairs of
+ * walkable cells of the grid graph together with the first step
+ * of a shortest path. Walls and gates never change during a game,
+ * so the table is built once and every query is an array lookup.
+ * Bugs are not taken into account.
+ *
+ * @author Marek Gargas
+ */
+public final class DistanceTable {
+
+    private final GridGraph graph;
+    private final int[] indexOf; // cell id -> row of the table, -1 for walls
+    private final int size;
+    private final short[] distances;
+    private final byte[] firstEdges; // offset of the first edge from the start cell's edge start
+
+    public DistanceTable(GridGraph graph)
+    {
+        this.graph = graph;
+        int cellCount = graph.getCellCount();
+        this.indexOf = new int[cellCount];
+        int walkableCount = 0;
+        for(int cell=0;cell<cellCount;cell++)
+        {
+            indexOf[cell] = graph.isWalkable(cell) ? walkableCount++ : -1;
+        }
+        this.size = walkableCount;
+        this.distances = new short[size * size];
+        this.firstEdges = new byte[size * size];
+        Arrays.fill(distances, (short) -1);
+
+        BFS bfs = new BFS(graph);
+        for(int from=0;from<cellCount;from++)
+        {
+            if(indexOf[from] == -1) continue;
+            bfs.search(from);
+            int row = indexOf[from] * size;
+            for(int to=0;to<cellCount;to++)
+            {
+                int distance = bfs.distanceTo(to);
+                if(distance == -1) continue;
+                distances[row + indexOf[to]] = (short) distance;
+                int step = bfs.firstStepTo(to);
+                if(step != -1) firstEdges[row + indexOf[to]] = (byte) edgeOffset(from, step);
+            }
+        }
+    }
+
+    private int edgeOffset(int from, int to)
+    {
+        for(int edge = graph.getEdgeStart(from); edge < graph.getEdgeEnd(from); edge++)
+        {
+            if(graph.getNeighbour(edge) == to) return edge - graph.getEdgeStart(from);
+        }
+        return 0;
+    }
+
+    public GridGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns distance between two cells or -1 if one can't be reached from the other.
+     * @param from Id of the start cell
+     * @param to Id of the destination cell
+     */
+    public int distance(int from, int to)
+    {
+        if(from == -1 || to == -1 || indexOf[from] == -1 || indexOf[to] == -1) return -1;
+        return distances[indexOf[from] * size + indexOf[to]];
+    }
+
+    /**
+     * Returns first cell on a shortest path between two cells or -1
+     * if the destination can't be reached or both cells are the same.
+     * @param from Id of the start cell
+     * @param to Id of the destination cell
+     */
+    public int firstStep(int from, int to)
+    {
+        if(distance(from, to) <= 0) return -1;
+        return graph.getNeighbour(graph.getEdgeStart(from) + firstEdges[indexOf[from] * size + indexOf[to]]);
+    }
+
+    /**
+     * Returns move that has to be made to get closer to the destination
+     * or MoveType.PASS if it can't be reached or both cells are the same.
+     * @param from Id of the start cell
+     * @param to Id of the destination cell
+     */
+    public MoveType firstMove(int from, int to)
+    {
+        if(distance(from, to) <= 0) return MoveType.PASS;
+        return graph.getMove(graph.getEdgeStart(from) + firstEdges[indexOf[from] * size + indexOf[to]]);
+    }
+}
@@ -1,9 +1,15 @@
 package graph;
 
 import field.Field;
+import instrument.EventKind;
+import instrument.Events;
+import instrument.Instrumentation;
+import instrument.Phase;
+import move.MoveType;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
 
@@ -31,6 +37,8 @@ public class GraphParser {
      */
     public HashMap<Point,Vertex> getGraphMap(boolean bugIsWall)
     {
+        Object event = Events.begin(EventKind.GRAPH_BUILD);
+        long start = Instrumentation.start();
         HashMap<Point,Vertex> graph = new HashMap<>();
         for(int y=0;y<field.getHeight();y++)
         {
@@ -45,6 +53,8 @@ public class GraphParser {
                 }
             }
         }
+        Instrumentation.stop(Phase.GRAPH, start);
+        Events.commitGraphBuild(event, Instrumentation.getRound(), "vertex map", graph.size());
         return graph;
     }
     /**
@@ -86,4 +96,57 @@ public class GraphParser {
         return adjacencyList;
     }
 
+    /**
+     * Creates static graph of the field in compressed sparse row form.
+     * Only walls and gates are taken into account, so the graph
+     * can be reused for the whole game.
+     */
+    public GridGraph getGridGraph()
+    {
+        Object event = Events.begin(EventKind.GRAPH_BUILD);
+        long start = Instrumentation.start();
+        int width = field.getWidth();
+        int height = field.getHeight();
+        int cellCount = width * height;
+        boolean[] walkable = new boolean[cellCount];
+        int[] offsets = new int[cellCount + 1];
+        int[] neighbours = new int[cellCount * 5];
+        byte[] moves = new byte[cellCount * 5];
+
+        int edgeCount = 0;
+        for(int cell=0;cell<cellCount;cell++)
+        {
+            int x = cell % width;
+            int y = cell / width;
+            offsets[cell] = edgeCount;
+            walkable[cell] = field.isPointValid(x,y);
+            if(!walkable[cell]) continue;
+
+            int gateDestination = field.getGateDestination(cell);
+            if(gateDestination != -1 && field.isPointValid(gateDestination % width, gateDestination / width))
+            {
+                neighbours[edgeCount] = gateDestination;
+                moves[edgeCount++] = (byte) field.getGate(new Point(x,y)).ordinal();
+            }
+            edgeCount = addEdge(neighbours, moves, edgeCount, x, y+1, MoveType.DOWN);
+            edgeCount = addEdge(neighbours, moves, edgeCount, x, y-1, MoveType.UP);
+            edgeCount = addEdge(neighbours, moves, edgeCount, x+1, y, MoveType.RIGHT);
+            edgeCount = addEdge(neighbours, moves, edgeCount, x-1, y, MoveType.LEFT);
+        }
+        offsets[cellCount] = edgeCount;
+
+        GridGraph graph = new GridGraph(width, height, field.getLayoutVersion(), walkable, offsets,
+                Arrays.copyOf(neighbours, edgeCount), Arrays.copyOf(moves, edgeCount));
+        Instrumentation.stop(Phase.GRAPH, start);
+        Events.commitGraphBuild(event, Instrumentation.getRound(), "grid graph", cellCount);
+        return graph;
+    }
+
+    private int addEdge(int[] neighbours, byte[] moves, int edgeCount, int x, int y, MoveType moveType)
+    {
+        if(!field.isPointValid(x,y)) return edgeCount;
+        neighbours[edgeCount] = field.getCellId(x,y);
+        moves[edgeCount] = (byte) moveType.ordinal();
+        return edgeCount + 1;
+    }
 }
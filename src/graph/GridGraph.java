@@ -0,0 +1,125 @@
+package graph;
+
+import move.MoveType;
+
+/**
+ * graph.GridGraph
+ *
+ * Static graph of the field in compressed sparse row form.
+ * Cell id is y * width + x, neighbours of a cell are stored in
+ * neighbours[offsets[cell]] .. neighbours[offsets[cell + 1] - 1]
+ * together with the move that leads to them. Gate edges are included.
+ * The graph only depends on walls and gates, so it is built once
+ * per game and never modified afterwards, which makes it safe
+ * to share between searches and threads.
+ *
+ * @author Marek Gargas
+ */
+public final class GridGraph {
+
+    private static final MoveType[] MOVE_TYPES = MoveType.values();
+
+    private final int width;
+    private final int height;
+    private final int layoutVersion;
+    private final boolean[] walkable;
+    private final int[] offsets;
+    private final int[] neighbours;
+    private final byte[] moves; // ordinal of the MoveType of each edge
+
+    GridGraph(int width, int height, int layoutVersion, boolean[] walkable,
+              int[] offsets, int[] neighbours, byte[] moves)
+    {
+        this.width = width;
+        this.height = height;
+        this.layoutVersion = layoutVersion;
+        this.walkable = walkable;
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+        this.moves = moves;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getCellCount() {
+        return walkable.length;
+    }
+
+    /**
+     * Returns version of the field layout this graph was built from
+     */
+    public int getLayoutVersion() {
+        return layoutVersion;
+    }
+
+    public int getCellId(int x, int y) {
+        return y * width + x;
+    }
+
+    public int getX(int cell) {
+        return cell % width;
+    }
+
+    public int getY(int cell) {
+        return cell / width;
+    }
+
+    /**
+     * Returns whether the cell is inside the field and is not a wall
+     * @param cell Id of the cell
+     */
+    public boolean isWalkable(int cell) {
+        return walkable[cell];
+    }
+
+    /**
+     * Returns index of the first edge of the cell
+     * @param cell Id of the cell
+     */
+    public int getEdgeStart(int cell) {
+        return offsets[cell];
+    }
+
+    /**
+     * Returns index after the last edge of the cell
+     * @param cell Id of the cell
+     */
+    public int getEdgeEnd(int cell) {
+        return offsets[cell + 1];
+    }
+
+    /**
+     * Returns cell that the edge leads to
+     * @param edge Index of the edge
+     */
+    public int getNeighbour(int edge) {
+        return neighbours[edge];
+    }
+
+    /**
+     * Returns the move that has to be made to follow the edge
+     * @param edge Index of the edge
+     */
+    public MoveType getMove(int edge) {
+        return MOVE_TYPES[moves[edge]];
+    }
+
+    /**
+     * Returns the move that leads from one cell to its neighbour
+     * or MoveType.PASS if the cells are not connected.
+     * @param from Id of the start cell
+     * @param to Id of the neighbouring cell
+     */
+    public MoveType getMove(int from, int to) {
+        for (int edge = offsets[from]; edge < offsets[from + 1]; edge++) {
+            if (neighbours[edge] == to) return MOVE_TYPES[moves[edge]];
+        }
+        return MoveType.PASS;
+    }
+}
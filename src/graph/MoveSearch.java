@@ -0,0 +1,44 @@
+package graph;
+
+import bot.BotState;
+import bot.PlayerSnapshot;
+import move.MoveType;
+
+/**
+ * graph.MoveSearch
+ *
+ * Search that Solver deepens one level at a time as long
+ * as there is time left, so there is always a move to return.
+ *
+ * @author Marek Gargas
+ */
+public interface MoveSearch {
+
+    /**
+     * Prepares the search for the current state of the game
+     * @param state Current state of the game
+     * @param players Snippets and bombs of the players, the search must not read them from the state
+     * @param fallbackMove Move of the greedy rule, used when nothing better is found
+     */
+    void reset(BotState state, PlayerSnapshot players, MoveType fallbackMove);
+
+    /**
+     * Prepares the search for the current state of the game with the players
+     * as they are now, only for the thread that updates the state
+     * @param state Current state of the game
+     * @param fallbackMove Move of the greedy rule, used when nothing better is found
+     */
+    default void reset(BotState state, MoveType fallbackMove)
+    {
+        reset(state, new PlayerSnapshot(state), fallbackMove);
+    }
+
+    /**
+     * Searches given amount of ticks ahead.
+     * @param depth Amount of ticks to look ahead
+     * @param deadline Deadline of the current move
+     * @return Best move for this depth or null if the deadline expired
+     * or the search can't be refined any further
+     */
+    MoveType search(int depth, Deadline deadline);
+}
@@ -0,0 +1,162 @@
+package graph;
+
+import bot.BotState;
+import bot.PlayerSnapshot;
+import move.MoveType;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * graph.ParallelParanoidSearch
+ *
+ * Paranoid search that evaluates my possible moves on several cores.
+ * Every move is searched by its own ParanoidSearch in a shared
+ * ForkJoinPool. All of them share one transposition table and
+ * the best value found so far, which every new search uses as its cutoff.
+ * A move searched with a cutoff only gets an upper bound when it fails
+ * low, so it never wins on that value. When the bound ties the best move
+ * and the move comes first, it is searched again to see if it really ties,
+ * so the same move is chosen as by a single ParanoidSearch.
+ *
+ * @author Marek Gargas
+ */
+public class ParallelParanoidSearch implements MoveSearch {
+
+    private static final int MAX_THREADS = 4;
+    private static final int TABLE_SIZE_BITS = 20;
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+            Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+
+    private final TranspositionTable table = new TranspositionTable(TABLE_SIZE_BITS);
+    private final ParanoidSearch[] searches = new ParanoidSearch[MoveType.values().length];
+    private final MoveType[] rootMoves = new MoveType[MoveType.values().length];
+    private final int[] values = new int[MoveType.values().length];
+    private final int[] alphas = new int[MoveType.values().length]; // cutoff every move was searched with
+    private int rootMoveCount;
+    private int bestValue;
+    private final boolean reversed;
+
+    public ParallelParanoidSearch()
+    {
+        this(false);
+    }
+
+    /**
+     * @param reversed Whether the moves after the first are started from the last one,
+     *                 so later moves set the cutoffs of earlier ones like on a busy pool
+     */
+    ParallelParanoidSearch(boolean reversed)
+    {
+        this.reversed = reversed;
+        for(int i = 0; i < searches.length; i++)
+        {
+            searches[i] = new ParanoidSearch(table);
+        }
+    }
+
+    /**
+     * Returns whether the parallel search is turned on with -Dbot.parallel=true
+     * and there is more than one core to run on. Its speedup over a single
+     * ParanoidSearch has not been measured on the engine's machines yet.
+     */
+    public static boolean isUseful()
+    {
+        return Boolean.getBoolean("bot.parallel") && POOL.getParallelism() > 1;
+    }
+
+    @Override
+    public void reset(BotState state, PlayerSnapshot players, MoveType fallbackMove)
+    {
+        rootMoveCount = 0;
+        if(state.getField().getMyPosition() == null) return;
+
+        //Same order as the root of a single ParanoidSearch, the first of equal moves wins
+        GridGraph graph = state.getGridGraph();
+        int myCell = graph.getCellId(state.getField().getMyPosition().x, state.getField().getMyPosition().y);
+        rootMoves[rootMoveCount++] = fallbackMove;
+        for(MoveType move : MoveType.values())
+        {
+            if(move != fallbackMove && (move == MoveType.PASS || hasEdge(graph, myCell, move)))
+            {
+                rootMoves[rootMoveCount++] = move;
+            }
+        }
+        for(int i = 0; i < rootMoveCount; i++)
+        {
+            searches[i].reset(state, players, fallbackMove);
+        }
+    }
+
+    @Override
+    public MoveType search(int depth, Deadline deadline)
+    {
+        if(rootMoveCount == 0) return null;
+        AtomicInteger bound = new AtomicInteger(-ParanoidSearch.INFINITY);
+
+        //The first move usually is the best one, its value makes the other searches cheaper
+        searchMove(0, depth, bound, deadline);
+        if(searches[0].isAborted()) return null;
+
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[rootMoveCount - 1];
+        for(int i = 1; i < rootMoveCount; i++)
+        {
+            int index = i;
+            tasks[reversed ? rootMoveCount - 1 - i : i - 1] = ForkJoinTask.adapt(() -> searchMove(index, depth, bound, deadline));
+        }
+        POOL.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+        //The first move is searched without a cutoff, so its value is exact
+        int best = 0;
+        for(int i = 1; i < rootMoveCount; i++)
+        {
+            if(searches[i].isAborted()) return null;
+            if(values[i] > alphas[i] && values[i] > values[best]) best = i;
+        }
+        //A move that failed low on the best value may tie it, the first of equal moves wins
+        for(int i = 1; i < best; i++)
+        {
+            if(values[i] > alphas[i] || values[i] < values[best]) continue;
+            ParanoidSearch search = searches[i];
+            search.begin(deadline);
+            int value = search.searchRootMove(rootMoves[i].ordinal(), depth, values[best] - 1);
+            if(search.isAborted()) return null;
+            if(value >= values[best])
+            {
+                best = i;
+                break;
+            }
+        }
+        bestValue = values[best];
+        return rootMoves[best];
+    }
+
+    private static boolean hasEdge(GridGraph graph, int cell, MoveType move)
+    {
+        for(int edge = graph.getEdgeStart(cell); edge < graph.getEdgeEnd(cell); edge++)
+        {
+            if(graph.getMove(edge) == move) return true;
+        }
+        return false;
+    }
+
+    private void searchMove(int index, int depth, AtomicInteger bound, Deadline deadline)
+    {
+        ParanoidSearch search = searches[index];
+        search.begin(deadline);
+        int alpha = bound.get();
+        int value = search.searchRootMove(rootMoves[index].ordinal(), depth, alpha);
+        alphas[index] = alpha;
+        values[index] = value;
+        bound.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Returns value of the move returned by the last finished search
+     */
+    int getBestValue()
+    {
+        return bestValue;
+    }
+}
@@ -0,0 +1,356 @@
+package graph;
+
+import bot.BotState;
+import bot.PlayerSnapshot;
+import field.Field;
+import field.GameSimulator;
+import move.MoveType;
+
+/**
+ * graph.ParanoidSearch
+ *
+ * Alpha-beta search over the game simulator. Every tick I pick my move
+ * first and my opponent answers with the move that is worst for me,
+ * bugs move as the simulator predicts. Leaves are scored by snippets,
+ * bombs, distance to the closest snippet and closeness of bugs.
+ * States at the start of a tick are stored in a transposition table,
+ * so states reached again by another order of moves are not searched twice.
+ * Wins and losses are stored counted from the stored state instead of
+ * the root, because the table is kept between moves.
+ * The greedy move is searched first at the root on every depth, so it
+ * is kept on equal scores, the best move of the previous depth follows it.
+ * When my opponent is not on the field he is left out instead of
+ * counted as dead, so the game doesn't end after the first tick.
+ *
+ * @author Marek Gargas
+ */
+public class ParanoidSearch implements MoveSearch {
+
+    static final int INFINITY = Integer.MAX_VALUE;
+    static final int WIN = 1_000_000;
+    private static final int SNIPPET_VALUE = 100;
+    private static final int BOMB_VALUE = 30;
+    private static final int DISTANCE_VALUE = 3;
+    private static final int BUG_PENALTY = 40;
+    private static final int BUG_PENALTY_DISTANCE = 2;
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+    private static final int MAX_PLY = 64;
+    private static final int MATE_BOUND = WIN - MAX_PLY; // scores beyond it are wins or losses
+    private static final int TABLE_SIZE_BITS = 18;
+    private static final MoveType[] MOVE_TYPES = MoveType.values();
+
+    private GridGraph graph;
+    private DistanceTable distanceTable;
+    private GameSimulator simulator;
+    private int[] snippetCells = new int[0];
+    private int snippetCellCount;
+    private final int[][] moves = new int[MAX_PLY][MOVE_TYPES.length];
+    private final TranspositionTable table;
+
+    private int me;
+    private int opponent;
+    private boolean opponentPresent;
+    private MoveType fallbackMove;
+    private Deadline deadline;
+    private boolean aborted;
+    private long nodes;
+    private int bestValue;
+
+    public ParanoidSearch()
+    {
+        this(new TranspositionTable(TABLE_SIZE_BITS));
+    }
+
+    public ParanoidSearch(TranspositionTable table)
+    {
+        this.table = table;
+    }
+
+    @Override
+    public void reset(BotState state, PlayerSnapshot players, MoveType fallbackMove)
+    {
+        Field field = state.getField();
+        GridGraph gridGraph = state.getGridGraph();
+        if(gridGraph != graph)
+        {
+            graph = gridGraph;
+            distanceTable = state.getDistanceTable();
+            simulator = new GameSimulator(field);
+            simulator.setBugMover(new BugPredictor(distanceTable));
+            snippetCells = new int[graph.getCellCount()];
+        }
+        me = field.getMyId();
+        opponent = field.getOpponentId();
+        this.fallbackMove = fallbackMove;
+
+        simulator.load(field, players.getSnippets(), players.getBombs());
+        opponentPresent = simulator.isAlive(opponent);
+        table.newSearch();
+
+        snippetCellCount = 0;
+        for(int cell = 0; cell < graph.getCellCount(); cell++)
+        {
+            if(simulator.hasSnippet(cell)) snippetCells[snippetCellCount++] = cell;
+        }
+    }
+
+    @Override
+    public MoveType search(int depth, Deadline deadline)
+    {
+        if(simulator == null || !simulator.isAlive(me) || depth >= MAX_PLY) return null;
+        this.deadline = deadline;
+        this.aborted = false;
+
+        int count = generateMoves(me, moves[0], fallbackMove);
+        long entry = table.probe(simulator.getHash());
+        if(entry != 0) moveToSecond(moves[0], count, TranspositionTable.getMove(entry));
+        MoveType bestMove = null;
+        int alpha = -INFINITY;
+        for(int i = 0; i < count; i++)
+        {
+            int value = minimize(moves[0][i], depth, alpha, INFINITY, 1);
+            if(aborted) return null;
+            if(value > alpha || bestMove == null)
+            {
+                alpha = value;
+                bestMove = MOVE_TYPES[moves[0][i]];
+            }
+        }
+        table.store(simulator.getHash(), depth, toTable(alpha, simulator.getDepth()),
+                TranspositionTable.EXACT, bestMove.ordinal());
+        bestValue = alpha;
+        return bestMove;
+    }
+
+    /**
+     * Prepares searching single root moves with searchRootMove
+     * @param deadline Deadline of the current move
+     */
+    void begin(Deadline deadline)
+    {
+        this.deadline = deadline;
+        this.aborted = false;
+    }
+
+    /**
+     * Returns value of my first move, or a value not greater than alpha
+     * if the move is not better than alpha.
+     * @param move Ordinal of my move
+     * @param depth Amount of ticks to look ahead
+     * @param alpha Value I can already get with another move
+     */
+    int searchRootMove(int move, int depth, int alpha)
+    {
+        if(simulator == null || !simulator.isAlive(me)) return -INFINITY;
+        return minimize(move, depth, alpha, INFINITY, 1);
+    }
+
+    boolean isAborted()
+    {
+        return aborted;
+    }
+
+    /**
+     * Returns value of the move returned by the last finished search
+     */
+    int getBestValue()
+    {
+        return bestValue;
+    }
+
+    /**
+     * Opponent's turn, my move for this tick is already chosen.
+     */
+    private int minimize(int myMove, int depth, int alpha, int beta, int ply)
+    {
+        int count = generateMoves(opponent, moves[ply], null);
+        int best = INFINITY;
+        for(int i = 0; i < count; i++)
+        {
+            play(myMove, moves[ply][i]);
+            int value = depth <= 1 || isOver() ? evaluate() : maximize(depth - 1, alpha, Math.min(beta, best), ply + 1);
+            simulator.undo();
+            if(aborted) return 0;
+            if(value < best)
+            {
+                best = value;
+                if(best <= alpha) break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * My turn at the start of a tick.
+     */
+    private int maximize(int depth, int alpha, int beta, int ply)
+    {
+        if(++nodes % DEADLINE_CHECK_INTERVAL == 0 && deadline.isExpired())
+        {
+            aborted = true;
+            return 0;
+        }
+        long key = simulator.getHash();
+        long entry = table.probe(key);
+        MoveType firstMove = null;
+        if(entry != 0)
+        {
+            int value = fromTable(TranspositionTable.getValue(entry), simulator.getDepth());
+            if(TranspositionTable.getDepth(entry) >= depth)
+            {
+                switch(TranspositionTable.getFlag(entry))
+                {
+                    case TranspositionTable.EXACT:
+                        return value;
+                    case TranspositionTable.LOWER_BOUND:
+                        if(value >= beta) return value;
+                        break;
+                    case TranspositionTable.UPPER_BOUND:
+                        if(value <= alpha) return value;
+                        break;
+                }
+            }
+            firstMove = MOVE_TYPES[TranspositionTable.getMove(entry)];
+        }
+
+        int count = generateMoves(me, moves[ply], firstMove);
+        int best = -INFINITY;
+        int bestMove = moves[ply][0];
+        for(int i = 0; i < count; i++)
+        {
+            int value = minimize(moves[ply][i], depth, Math.max(alpha, best), beta, ply + 1);
+            if(aborted) return 0;
+            if(value > best)
+            {
+                best = value;
+                bestMove = moves[ply][i];
+                if(best >= beta) break;
+            }
+        }
+        int flag = best <= alpha ? TranspositionTable.UPPER_BOUND
+                : best >= beta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+        table.store(key, depth, toTable(best, simulator.getDepth()), flag, bestMove);
+        return best;
+    }
+
+    /**
+     * Converts a win or loss counted from the root to one counted
+     * from the state at given ply, so it stays true from another root
+     */
+    static int toTable(int value, int ply)
+    {
+        if(value >= MATE_BOUND) return value + ply;
+        if(value <= -MATE_BOUND) return value - ply;
+        return value;
+    }
+
+    /**
+     * Converts a win or loss read from the table at given ply back to one counted from the root
+     */
+    static int fromTable(int value, int ply)
+    {
+        if(value >= MATE_BOUND) return value - ply;
+        if(value <= -MATE_BOUND) return value + ply;
+        return value;
+    }
+
+    private void play(int myMove, int opponentMove)
+    {
+        if(me == 0)
+        {
+            simulator.apply(myMove, GameSimulator.NO_BOMB, opponentMove, GameSimulator.NO_BOMB);
+        }
+        else
+        {
+            simulator.apply(opponentMove, GameSimulator.NO_BOMB, myMove, GameSimulator.NO_BOMB);
+        }
+    }
+
+    private boolean isOver()
+    {
+        return !simulator.isAlive(me) || (opponentPresent && !simulator.isAlive(opponent));
+    }
+
+    /**
+     * Moves the move right behind the first one, keeps the order of the rest
+     */
+    private static void moveToSecond(int[] buffer, int count, int move)
+    {
+        for(int i = 2; i < count; i++)
+        {
+            if(buffer[i] != move) continue;
+            System.arraycopy(buffer, 1, buffer, 2, i - 1);
+            buffer[1] = move;
+            return;
+        }
+    }
+
+    /**
+     * Stores possible moves of the player, first move goes first
+     * @return Amount of moves
+     */
+    private int generateMoves(int player, int[] buffer, MoveType firstMove)
+    {
+        int count = 0;
+        if(firstMove != null) buffer[count++] = firstMove.ordinal();
+        if(!simulator.isAlive(player))
+        {
+            if(count == 0) buffer[count++] = MoveType.PASS.ordinal();
+            return count;
+        }
+        int cell = simulator.getPlayerCell(player);
+        for(int move = 0; move < MOVE_TYPES.length; move++)
+        {
+            if(firstMove != null && move == firstMove.ordinal()) continue;
+            if(simulator.getMoveTarget(cell, move) != -1) buffer[count++] = move;
+        }
+        return count;
+    }
+
+    /**
+     * Scores the state of the simulator from my point of view
+     */
+    int evaluate()
+    {
+        int depth = simulator.getDepth();
+        if(!simulator.isAlive(me)) return -WIN + depth; // dying later is better
+        if(opponentPresent && !simulator.isAlive(opponent)) return WIN - depth;
+
+        int score = (simulator.getSnippets(me) - simulator.getSnippets(opponent)) * SNIPPET_VALUE
+                + (simulator.getBombs(me) - simulator.getBombs(opponent)) * BOMB_VALUE;
+
+        int myCell = simulator.getPlayerCell(me);
+        int opponentCell = simulator.getPlayerCell(opponent);
+        int myDistance = Integer.MAX_VALUE;
+        int opponentDistance = Integer.MAX_VALUE;
+        for(int i = 0; i < snippetCellCount; i++)
+        {
+            int cell = snippetCells[i];
+            if(!simulator.hasSnippet(cell)) continue;
+            int distance = distanceTable.distance(myCell, cell);
+            if(distance != -1 && distance < myDistance) myDistance = distance;
+            distance = distanceTable.distance(opponentCell, cell);
+            if(distance != -1 && distance < opponentDistance) opponentDistance = distance;
+        }
+        if(myDistance != Integer.MAX_VALUE) score -= myDistance * DISTANCE_VALUE;
+        if(opponentDistance != Integer.MAX_VALUE) score += opponentDistance * DISTANCE_VALUE;
+
+        for(int bug = 0; bug < simulator.getBugCount(); bug++)
+        {
+            int distance = distanceTable.distance(simulator.getBugCell(bug), myCell);
+            if(distance != -1 && distance <= BUG_PENALTY_DISTANCE)
+            {
+                score -= BUG_PENALTY * (BUG_PENALTY_DISTANCE + 1 - distance);
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Returns amount of nodes visited since the search was created
+     */
+    public long getNodeCount()
+    {
+        return nodes;
+    }
+}
@@ -1,13 +1,15 @@
 package graph;
 
 import bot.BotState;
+import bot.PlayerSnapshot;
 import field.Field;
+import instrument.EventKind;
+import instrument.Events;
+import instrument.Instrumentation;
+import instrument.Phase;
 import move.MoveType;
 
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.stream.Collectors;
 /**
  * graph.Solver
  *
@@ -18,63 +20,278 @@ import java.util.stream.Collectors;
  */
 public class Solver {
 
+    private static final int MAX_SEARCH_DEPTH = 40;
+    private static final int MY_BUG_HORIZON = 1; // I also avoid cells next to bugs
+    private static final int OPPONENT_BUG_HORIZON = 0;
+    private static final int SPACE_TIME_HORIZON = 24; // ticks the bugs are predicted for
+
     private BotState currentState;
+    private MoveSearch moveSearch;
+    private int maxDepth = MAX_SEARCH_DEPTH;
+    private volatile int lastDepth; // depth the last getMove finished, read by the thread that asked for the move
+    private MoveType ponderedMove; // best move found by ponder for the current field, null if there is none
+    private int ponderedDepth;
+    private PlayerSnapshot ponderedPlayers; // snippets and bombs of the players the pondered search started from
+    private GridGraph graph;
+    private DangerMap dangerMap;
+    private Voronoi voronoi;
+    private BFS myBFS;
+    private BugPredictor bugPredictor;
+    private SpaceTimeSearch spaceTimeSearch;
+    private BlastMap blastMap;
+    private BombPlanner bombPlanner;
 
     public Solver(BotState currentState)
+    {
+        this(currentState, ParallelParanoidSearch.isUseful() ? new ParallelParanoidSearch() : new ParanoidSearch());
+    }
+
+    public Solver(BotState currentState, MoveSearch moveSearch)
     {
         this.currentState = currentState;
+        this.moveSearch = moveSearch;
+    }
+
+    /**
+     * Creates the searches again when the field layout has changed,
+     * otherwise their buffers are reused.
+     */
+    private void prepareSearches()
+    {
+        GridGraph gridGraph = currentState.getGridGraph();
+        if(gridGraph != graph)
+        {
+            graph = gridGraph;
+            dangerMap = new DangerMap(graph);
+            voronoi = new Voronoi(graph);
+            myBFS = new BFS(graph);
+            bugPredictor = new BugPredictor(currentState.getDistanceTable());
+            spaceTimeSearch = new SpaceTimeSearch(graph, SPACE_TIME_HORIZON);
+            blastMap = new BlastMap(graph);
+            bombPlanner = new BombPlanner(currentState.getDistanceTable(), blastMap, bugPredictor, spaceTimeSearch);
+        }
     }
 
     /**
      * Returns player's next move that should be the best
-     * according to my algorithm and current state of the game
+     * according to my algorithm and current state of the game.
+     * The time for the move is taken from the timebank.
      */
     public MoveType getMove()
+    {
+        return getMove(Deadline.forMove(currentState));
+    }
+
+    /**
+     * Returns the best move found before the deadline, with the players
+     * as they are now. Only for the thread that updates the state.
+     * @param deadline Deadline of the current move
+     */
+    public MoveType getMove(Deadline deadline)
+    {
+        return getMove(new PlayerSnapshot(currentState), deadline);
+    }
+
+    /**
+     * Returns the best move found before the deadline. The greedy move
+     * is refined by searching one tick deeper at a time, so the move
+     * of the last finished depth is returned when time runs out.
+     * @param players Snippets and bombs of the players, taken by the thread that updates them
+     * @param deadline Deadline of the current move
+     */
+    public MoveType getMove(PlayerSnapshot players, Deadline deadline)
+    {
+        Object event = Events.begin(EventKind.DECISION);
+        MoveType bestMove = ponderedMove;
+        int depth = ponderedDepth + 1;
+        ponderedMove = null;
+        lastDepth = 0;
+        //Snippets and bombs of the players are updated after the field, the pondered search may have missed them
+        if(bestMove != null && !players.equals(ponderedPlayers)) bestMove = null;
+        boolean pondered = bestMove != null;
+        if(bestMove == null)
+        {
+            bestMove = getGreedyMove();
+            moveSearch.reset(currentState, players, bestMove);
+            depth = 1;
+        }
+        long start = Instrumentation.start();
+        for(; depth <= maxDepth && !deadline.isExpired(); depth++)
+        {
+            MoveType move = moveSearch.search(depth, deadline);
+            if(move == null) break;
+            bestMove = move;
+        }
+        Instrumentation.stop(Phase.SEARCH, start);
+        lastDepth = depth - 1;
+        Events.commitDecision(event, currentState.getRoundNumber(), bestMove.toString(), lastDepth, pondered);
+        return bestMove;
+    }
+
+    /**
+     * Limits how deep getMove and ponder search, so a replay can measure
+     * the time of a fixed amount of work instead of the time budget.
+     * @param maxDepth Deepest depth searched, at most MAX_SEARCH_DEPTH
+     */
+    public void setMaxDepth(int maxDepth)
+    {
+        this.maxDepth = Math.max(1, Math.min(maxDepth, MAX_SEARCH_DEPTH));
+    }
+
+    /**
+     * Returns the deepest depth the last getMove finished, counting
+     * the depths pondered before it, 0 if only the greedy move was found
+     */
+    public int getLastDepth()
+    {
+        return lastDepth;
+    }
+
+    /**
+     * Returns ticks of a bomb worth dropping together with my move or BombPlanner.NO_BOMB.
+     * It uses the bug predictions and blasts of the current field, so it has to follow getMove.
+     * @param players Snippets and bombs of the players, taken by the thread that updates them
+     * @param move Move returned by getMove
+     */
+    public int getBombTicks(PlayerSnapshot players, MoveType move)
     {
         Field field = currentState.getField();
-        GraphParser graphParser = new GraphParser(field);
+        int me = field.getMyId();
+        if(bombPlanner == null || blastMap.getRound() != currentState.getRoundNumber() || me < 0 || me > 1)
+        {
+            return BombPlanner.NO_BOMB;
+        }
+        return bombPlanner.plan(toCell(field.getMyPosition()), move,
+                toCell(field.getOpponentPosition()), players.getBombs()[me]);
+    }
 
-        HashMap<Point,Vertex> myGraph = graphParser.getGraphMap(false);
-        HashMap<Point,Vertex> myGraphBugIsWall = graphParser.getGraphMap(true);
-        HashMap<Point,Vertex> myOpponentGraphBugIsWall = graphParser.getGraphMap(true);
+    /**
+     * Starts searching the current field before the move is asked for.
+     * Runs until the deadline is cancelled, the next getMove continues
+     * from the deepest finished depth instead of starting over.
+     * Must not run at the same time as getMove.
+     * @param players Snippets and bombs of the players, taken by the thread that updates them
+     * @param deadline Deadline that is cancelled when the move is asked for
+     */
+    public void ponder(PlayerSnapshot players, Deadline deadline)
+    {
+        ponderedMove = null;
+        ponderedDepth = 0;
+        ponderedPlayers = players;
+        MoveType bestMove = getGreedyMove();
+        moveSearch.reset(currentState, players, bestMove);
+        ponderedMove = bestMove;
+        long start = Instrumentation.start();
+        for(int depth = 1; depth <= maxDepth && !deadline.isExpired(); depth++)
+        {
+            MoveType move = moveSearch.search(depth, deadline);
+            if(move == null) break;
+            ponderedMove = move;
+            ponderedDepth = depth;
+        }
+        Instrumentation.stop(Phase.PONDER, start);
+    }
 
+    /**
+     * Returns move that only needs the distance table: first step
+     * towards the closest snippet, ignoring bugs and my opponent.
+     * It doesn't use any buffers of a Solver, so it can be computed
+     * while a Solver is still searching.
+     * @param state Current state of the game
+     */
+    public static MoveType getFallbackMove(BotState state)
+    {
+        Field field = state.getField();
+        DistanceTable distanceTable = state.getDistanceTable();
+        GridGraph gridGraph = distanceTable.getGraph();
         Point myPosition = field.getMyPosition();
+        if(myPosition == null) return MoveType.PASS;
+        int myCell = gridGraph.getCellId(myPosition.x, myPosition.y);
+
+        int target = gridGraph.getCellId(gridGraph.getWidth() / 2, gridGraph.getHeight() / 2);
+        int targetDistance = Integer.MAX_VALUE;
+        for(Point snippetPosition : field.getSnippetPositions())
+        {
+            int snippetCell = gridGraph.getCellId(snippetPosition.x, snippetPosition.y);
+            int distance = distanceTable.distance(myCell, snippetCell);
+            if(distance > 0 && distance < targetDistance)
+            {
+                target = snippetCell;
+                targetDistance = distance;
+            }
+        }
+        int step = distanceTable.firstStep(myCell, target);
+        if(step == -1 || (field.getCell(step) & Field.BUG) != 0) return MoveType.PASS;
+        return distanceTable.firstMove(myCell, target);
+    }
+
+    /**
+     * Returns move of the greedy rule: go to the closest snippet
+     * my opponent can't reach first, otherwise go to the center.
+     * The path to the snippet goes around the predicted bugs.
+     */
+    public MoveType getGreedyMove()
+    {
+        long start = Instrumentation.start();
+        MoveType move = selectGreedyMove();
+        Instrumentation.stop(Phase.SELECTION, start);
+        return move;
+    }
 
-        BFS myBFS = new BFS(myPosition); //Construct bfs with my player's position as a start point.
-        myBFS.init(myGraph);
-        BFS myBFSBugIsWall = new BFS(myPosition);
-        myBFSBugIsWall.init(myGraphBugIsWall);
+    private MoveType selectGreedyMove()
+    {
+        Field field = currentState.getField();
+        prepareSearches();
 
-        Point centerPosition = new Point(9,7);
-        Point nextStepToCenter = myBFS.getNextPosition(centerPosition);
-        if(nextStepToCenter==null) nextStepToCenter = myBFS.getNextPosition(new Point(0,7));
-        //This handles the situation when I am standing on center position and I am blocked by bugs.
+        DistanceTable distanceTable = currentState.getDistanceTable();
 
-        Point opponentPosition = field.getOpponentPosition();
-        BFS opponentBFSBugIsWall = new BFS(opponentPosition);
-        opponentBFSBugIsWall.init(myOpponentGraphBugIsWall);
+        Point myPosition = field.getMyPosition();
+        int myCell = toCell(myPosition);
 
-        ArrayList<Point> SnippetPositions = field.getSnippetPositions();
-        Point mySnippetPosition = myBFSBugIsWall.getClosestObjectPosition(SnippetPositions);
-        Point opponentSnippetPosition = opponentBFSBugIsWall.getClosestObjectPosition(SnippetPositions);
+        MoveType moveToCenter = distanceTable.firstMove(myCell, toCell(new Point(9,7)));
+        if(moveToCenter==MoveType.PASS) moveToCenter = distanceTable.firstMove(myCell, toCell(new Point(0,7)));
+        //This handles the situation when I am standing on center position.
 
-        if(mySnippetPosition!=null) {
-            if (mySnippetPosition.equals(opponentSnippetPosition) &&
-                    myBFSBugIsWall.getDistanceToStart(mySnippetPosition) > opponentBFSBugIsWall.getDistanceToStart(opponentSnippetPosition))
-            {
-                ArrayList<Point> availableSnippets = SnippetPositions.stream()
-                        .filter(point->!point.equals(mySnippetPosition))
-                        .collect(Collectors.toCollection(ArrayList::new));
-                Point mySecondSnippetPosition = myBFSBugIsWall.getClosestObjectPosition(availableSnippets);
-                if(mySecondSnippetPosition==null)
-                {
-                    return field.getTranspositionMove(myPosition,nextStepToCenter);
-                }
-                return field.getTranspositionMove(myPosition,myBFSBugIsWall.getNextPosition(mySecondSnippetPosition));
+        dangerMap.update(field.getEnemyPositions());
+        bugPredictor.predict(field, SPACE_TIME_HORIZON);
+        blastMap.update(field, currentState.getRoundNumber());
+        spaceTimeSearch.reset(bugPredictor, blastMap);
+        if(field.getOpponentPosition()==null)
+        {
+            //Nobody to compete with, so the closest snippet is enough
+            if(myBFS.findNearest(myPosition, field.getSnippetPositions(), 1, dangerMap, MY_BUG_HORIZON) > 0) {
+                int snippetCell = myBFS.getFoundTarget(0);
+                return getSafeMoveTo(myCell, snippetCell, myBFS.moveTo(snippetCell));
             }
-            return field.getTranspositionMove(myPosition,myBFSBugIsWall.getNextPosition(mySnippetPosition));
+            return moveToCenter;
+        }
+        voronoi.compute(myPosition, field.getOpponentPosition(), dangerMap, MY_BUG_HORIZON, OPPONENT_BUG_HORIZON);
+
+        //Closest snippet that my opponent can't reach before me
+        Point mySnippetPosition = voronoi.getBestSnippet(field.getSnippetPositions());
+        if(mySnippetPosition!=null) {
+            return getSafeMoveTo(myCell, toCell(mySnippetPosition), voronoi.getMyNextMove(mySnippetPosition));
         }
-        return field.getTranspositionMove(myPosition,nextStepToCenter);
+        return moveToCenter;
     }
 
+    /**
+     * Returns first move of the safest shortest path to the target
+     * around the predicted bugs and explosions.
+     * @param myCell Id of my cell
+     * @param target Id of the target cell
+     * @param move Move returned when the target can't be reached within the horizon
+     */
+    private MoveType getSafeMoveTo(int myCell, int target, MoveType move)
+    {
+        if(spaceTimeSearch.search(myCell, target, SPACE_TIME_HORIZON) == SpaceTimeSearch.NOT_FOUND) return move;
+        return spaceTimeSearch.getFirstMove();
+    }
+
+    private int toCell(Point point)
+    {
+        if(point == null || point.x < 0 || point.x >= graph.getWidth()
+                || point.y < 0 || point.y >= graph.getHeight()) return -1;
+        return graph.getCellId(point.x, point.y);
+    }
 }
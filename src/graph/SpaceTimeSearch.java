@@ -0,0 +1,251 @@
+package graph;
+
+import move.MoveType;
+
+import java.util.Arrays;
+
+/**
+ * graph.SpaceTimeSearch
+ *
+ * Class responsible for finding paths around moving bugs. It runs BFS
+ * over (cell, tick) states, so waiting is a move too and a cell is only
+ * blocked at the ticks a predicted bug stands on it or a ticking bomb
+ * explodes over it. Of all the shortest paths the safest one is kept,
+ * that is the one passing the fewest predicted bugs next to it.
+ * Every tick has its own layer of the visited bitmap, the layers
+ * and the path arrays are reused, so searching allocates nothing.
+ *
+ * @author Marek Gargas
+ */
+public class SpaceTimeSearch {
+
+    public static final int NOT_FOUND = -1;
+
+    private final GridGraph graph;
+    private final int cellCount;
+    private final int words; // longs in one layer of a bitmap
+    private final int maxHorizon;
+    private final long[] visited; // tick * words + cell / 64
+    private final int[] risk; // tick * cellCount + cell, valid if the state is visited
+    private final int[] parent; // same layout, cell of the previous tick
+    private final int[] frontier;
+    private final int[] nextFrontier;
+    private final int[] path;
+    private final long[] extraBlast; // cells of a bomb that is only planned, see canEscape
+
+    private BugPredictor predictor;
+    private BlastMap blastMap;
+    private int bugTicks; // predicted ticks that can be used
+    private int arrivalTick = NOT_FOUND;
+
+    public SpaceTimeSearch(GridGraph graph, int maxHorizon)
+    {
+        this.graph = graph;
+        this.cellCount = graph.getCellCount();
+        this.words = (cellCount + 63) / 64;
+        this.maxHorizon = maxHorizon;
+        this.visited = new long[(maxHorizon + 1) * words];
+        this.risk = new int[(maxHorizon + 1) * cellCount];
+        this.parent = new int[(maxHorizon + 1) * cellCount];
+        this.frontier = new int[cellCount];
+        this.nextFrontier = new int[cellCount];
+        this.path = new int[maxHorizon + 1];
+        this.extraBlast = new long[words];
+    }
+
+    /**
+     * Prepares the search for the current round.
+     * @param predictor Predictor that has already predicted the bugs of the field
+     * @param blastMap Explosions of the ticking bombs, updated to the current round
+     */
+    public void reset(BugPredictor predictor, BlastMap blastMap)
+    {
+        this.predictor = predictor;
+        this.blastMap = blastMap;
+        this.bugTicks = Math.min(predictor.getTicks(), maxHorizon);
+    }
+
+    /**
+     * Searches the safest shortest path from start to target.
+     * Bugs are only known for the ticks the predictor has predicted,
+     * so the horizon is cut to them.
+     * @param start Id of the start cell
+     * @param target Id of the target cell
+     * @param horizon Maximal amount of ticks of the path
+     * @return Tick the target is reached or NOT_FOUND
+     */
+    public int search(int start, int target, int horizon)
+    {
+        arrivalTick = NOT_FOUND;
+        if(start == -1 || target == -1) return NOT_FOUND;
+        horizon = Math.min(horizon, bugTicks);
+        Arrays.fill(visited, 0, (horizon + 1) * words, 0L);
+
+        visited[start >>> 6] |= 1L << start;
+        risk[start] = 0;
+        parent[start] = start;
+        frontier[0] = start;
+        int frontierSize = 1;
+        if(start == target)
+        {
+            arrivalTick = 0;
+            path[0] = start;
+            return arrivalTick;
+        }
+
+        for(int tick=1;tick<=horizon && frontierSize > 0;tick++)
+        {
+            int nextSize = 0;
+            int layer = tick * cellCount;
+            int previousLayer = layer - cellCount;
+            for(int i=0;i<frontierSize;i++)
+            {
+                int from = frontier[i];
+                int fromRisk = risk[previousLayer + from];
+                //Waiting on the cell is tried first, then every edge
+                for(int edge = graph.getEdgeStart(from) - 1; edge < graph.getEdgeEnd(from); edge++)
+                {
+                    int to = edge < graph.getEdgeStart(from) ? from : graph.getNeighbour(edge);
+                    if(!isSafe(to, tick)) continue;
+                    int toRisk = fromRisk + getRisk(to, tick);
+                    int bit = tick * words + (to >>> 6);
+                    if((visited[bit] & (1L << to)) == 0)
+                    {
+                        visited[bit] |= 1L << to;
+                        nextFrontier[nextSize++] = to;
+                    }
+                    else if(risk[layer + to] <= toRisk) continue;
+                    risk[layer + to] = toRisk;
+                    parent[layer + to] = from;
+                }
+            }
+            if((visited[tick * words + (target >>> 6)] & (1L << target)) != 0)
+            {
+                arrivalTick = tick;
+                for(int t = tick, cell = target; t >= 0; t--)
+                {
+                    path[t] = cell;
+                    cell = parent[t * cellCount + cell];
+                }
+                return arrivalTick;
+            }
+            System.arraycopy(nextFrontier, 0, frontier, 0, nextSize);
+            frontierSize = nextSize;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Returns whether a player can survive until the end tick when
+     * another bomb blasts the given cells from the leave tick on.
+     * The player may wait or walk, only predicted bugs and explosions
+     * on the way are avoided, so a way out that a bug crosses doesn't count.
+     * @param start Id of the player's cell at the start tick
+     * @param startTick Tick the player stands on the start cell, 0 is the current field
+     * @param blastCells Cells of the other blast
+     * @param blastCount Amount of the cells
+     * @param leaveTick First tick the player must not stand in the other blast
+     * @param endTick Last tick the player has to survive, the bugs have to be predicted for it
+     * @return True if some way survives until the end tick
+     */
+    public boolean canEscape(int start, int startTick, int[] blastCells, int blastCount, int leaveTick, int endTick)
+    {
+        if(start == -1 || endTick > bugTicks) return false;
+        for(int i=0;i<blastCount;i++) extraBlast[blastCells[i] >>> 6] |= 1L << blastCells[i];
+        Arrays.fill(visited, startTick * words, (endTick + 1) * words, 0L);
+
+        int frontierSize = 0;
+        if(startTick == 0 || isSafe(start, startTick) && !isInExtraBlast(start, startTick, leaveTick))
+        {
+            visited[startTick * words + (start >>> 6)] |= 1L << start;
+            frontier[frontierSize++] = start;
+        }
+        for(int tick=startTick+1;tick<=endTick && frontierSize > 0;tick++)
+        {
+            int nextSize = 0;
+            for(int i=0;i<frontierSize;i++)
+            {
+                int from = frontier[i];
+                for(int edge = graph.getEdgeStart(from) - 1; edge < graph.getEdgeEnd(from); edge++)
+                {
+                    int to = edge < graph.getEdgeStart(from) ? from : graph.getNeighbour(edge);
+                    int bit = tick * words + (to >>> 6);
+                    if((visited[bit] & (1L << to)) != 0) continue;
+                    if(!isSafe(to, tick) || isInExtraBlast(to, tick, leaveTick)) continue;
+                    visited[bit] |= 1L << to;
+                    nextFrontier[nextSize++] = to;
+                }
+            }
+            System.arraycopy(nextFrontier, 0, frontier, 0, nextSize);
+            frontierSize = nextSize;
+        }
+
+        for(int i=0;i<blastCount;i++) extraBlast[blastCells[i] >>> 6] = 0L;
+        return frontierSize > 0;
+    }
+
+    private boolean isInExtraBlast(int cell, int tick, int leaveTick)
+    {
+        return tick >= leaveTick && (extraBlast[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Returns whether the player can stand on the cell at given tick.
+     * Players move before bugs, so a bug that stood on the cell in the
+     * previous tick hits the player too, swapping cells with a bug included.
+     * Standing in an explosion is not safe either.
+     */
+    private boolean isSafe(int cell, int tick)
+    {
+        return !blastMap.explodesIn(cell, tick) && !predictor.isOccupied(cell, tick) && !predictor.isOccupied(cell, tick - 1);
+    }
+
+    /**
+     * Returns the amount of predicted bugs next to the cell at given tick
+     */
+    private int getRisk(int cell, int tick)
+    {
+        int bugs = 0;
+        for(int edge = graph.getEdgeStart(cell); edge < graph.getEdgeEnd(cell); edge++)
+        {
+            if(predictor.isOccupied(graph.getNeighbour(edge), tick)) bugs++;
+        }
+        return bugs;
+    }
+
+    /**
+     * Returns tick the target was reached in the last search or NOT_FOUND
+     */
+    public int getArrivalTick()
+    {
+        return arrivalTick;
+    }
+
+    /**
+     * Returns cell of the found path at given tick
+     * @param tick Tick 0 - getArrivalTick()
+     */
+    public int getPathCell(int tick)
+    {
+        return path[tick];
+    }
+
+    /**
+     * Returns risk of the found path, the amount of times a predicted bug
+     * stands next to it
+     */
+    public int getPathRisk()
+    {
+        return arrivalTick == NOT_FOUND ? 0 : risk[arrivalTick * cellCount + path[arrivalTick]];
+    }
+
+    /**
+     * Returns the first move of the found path, MoveType.PASS if it starts
+     * with waiting or nothing was found
+     */
+    public MoveType getFirstMove()
+    {
+        if(arrivalTick == NOT_FOUND || arrivalTick == 0 || path[1] == path[0]) return MoveType.PASS;
+        return graph.getMove(path[0], path[1]);
+    }
+}
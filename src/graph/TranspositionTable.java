@@ -0,0 +1,123 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * graph.TranspositionTable
+ *
+ * Fixed size, open addressed table of search results indexed by
+ * Zobrist hash. Every entry is two longs: the key XOR the data and the data.
+ * A reader only trusts an entry if both halves belong together, so
+ * threads can read and write without locks, a torn write is just a miss.
+ * Deeper results are kept, shallower ones only replace entries
+ * that are left over from older searches.
+ *
+ * @author Marek Gargas
+ */
+public final class TranspositionTable {
+
+    public static final int EXACT = 1;
+    public static final int LOWER_BOUND = 2; // value is at least the stored one
+    public static final int UPPER_BOUND = 3; // value is at most the stored one
+
+    /* Layout of the data long */
+    private static final int VALUE_BITS = 32;
+    private static final int DEPTH_SHIFT = 32;
+    private static final int FLAG_SHIFT = 40;
+    private static final int MOVE_SHIFT = 42;
+    private static final int AGE_SHIFT = 46;
+    private static final long USED = 1L << 62; // so that stored data is never 0
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private volatile int age;
+
+    /**
+     * @param sizeBits Table has 2^sizeBits entries
+     */
+    public TranspositionTable(int sizeBits)
+    {
+        this.keys = new long[1 << sizeBits];
+        this.data = new long[1 << sizeBits];
+        this.mask = (1 << sizeBits) - 1;
+    }
+
+    /**
+     * Starts a new search, entries of older searches may be replaced by any result
+     */
+    public void newSearch()
+    {
+        age = (age + 1) & 0xFF;
+    }
+
+    /**
+     * Removes all entries, so the next search starts from nothing.
+     * Must not be called while searching.
+     */
+    public void clear()
+    {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(data, 0L);
+    }
+
+    /**
+     * Returns data stored for the key or 0 if there is none
+     * @param key Zobrist hash of the state
+     */
+    public long probe(long key)
+    {
+        int index = (int) key & mask;
+        long entry = data[index];
+        if(entry == 0 || (keys[index] ^ entry) != key) return 0;
+        return entry;
+    }
+
+    /**
+     * Stores result of a search
+     * @param key Zobrist hash of the state
+     * @param depth Depth the state was searched to
+     * @param value Value of the state
+     * @param flag EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param move Ordinal of the best move
+     */
+    public void store(long key, int depth, int value, int flag, int move)
+    {
+        int index = (int) key & mask;
+        long old = data[index];
+        if(old != 0 && (keys[index] ^ old) != key && getAge(old) == age && getDepth(old) > depth) return;
+        long entry = (value & 0xFFFFFFFFL)
+                | ((long) Math.min(depth, 0xFF) << DEPTH_SHIFT)
+                | ((long) flag << FLAG_SHIFT)
+                | ((long) move << MOVE_SHIFT)
+                | ((long) age << AGE_SHIFT)
+                | USED;
+        keys[index] = key ^ entry;
+        data[index] = entry;
+    }
+
+    public static int getValue(long entry)
+    {
+        return (int) (entry & ((1L << VALUE_BITS) - 1));
+    }
+
+    public static int getDepth(long entry)
+    {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int getFlag(long entry)
+    {
+        return (int) (entry >>> FLAG_SHIFT) & 0x3;
+    }
+
+    public static int getMove(long entry)
+    {
+        return (int) (entry >>> MOVE_SHIFT) & 0xF;
+    }
+
+    private static int getAge(long entry)
+    {
+        return (int) (entry >>> AGE_SHIFT) & 0xFF;
+    }
+}
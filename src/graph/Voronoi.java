@@ -0,0 +1,200 @@
+package graph;
+
+import move.MoveType;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * graph.Voronoi
+ *
+ * Class responsible for splitting the field between me and my opponent.
+ * Both players are searched at once layer by layer, so each cell
+ * is labeled with the player that reaches it first and the distance.
+ * A cell reached by the other player first is not expanded any further.
+ *
+ * @author Marek Gargas
+ */
+public class Voronoi {
+
+    public static final int NONE = 0;
+    public static final int ME = 1;
+    public static final int OPPONENT = 2;
+    public static final int TIE = 3;
+
+    private final GridGraph graph;
+    private final int[] myDistance;
+    private final int[] opponentDistance;
+    private final int[] myFirstStep;
+    private final int[] myGeneration;
+    private final int[] opponentGeneration;
+    private final int[] myQueue;
+    private final int[] opponentQueue;
+    private int generation;
+    private int myCell = -1;
+
+    public Voronoi(GridGraph graph)
+    {
+        this.graph = graph;
+        int cellCount = graph.getCellCount();
+        this.myDistance = new int[cellCount];
+        this.opponentDistance = new int[cellCount];
+        this.myFirstStep = new int[cellCount];
+        this.myGeneration = new int[cellCount];
+        this.opponentGeneration = new int[cellCount];
+        this.myQueue = new int[cellCount];
+        this.opponentQueue = new int[cellCount];
+    }
+
+    /**
+     * Labels every cell with the player that reaches it first.
+     * Cells that are not safe because of bugs are skipped, see DangerMap.isSafe.
+     * @param myPosition My position, null if I am not on the field
+     * @param opponentPosition Opponent's position, null if he is not on the field
+     * @param dangerMap Danger of the current bug positions
+     * @param myHorizon Bug horizon used for my paths
+     * @param opponentHorizon Bug horizon used for opponent's paths
+     */
+    public void compute(Point myPosition, Point opponentPosition, DangerMap dangerMap,
+                        int myHorizon, int opponentHorizon)
+    {
+        if(++generation == 0)
+        {
+            Arrays.fill(myGeneration, 0);
+            Arrays.fill(opponentGeneration, 0);
+            generation = 1;
+        }
+        myCell = toCell(myPosition);
+        int opponentCell = toCell(opponentPosition);
+
+        int myHead = 0, myTail = 0, opponentHead = 0, opponentTail = 0;
+        if(myCell != -1)
+        {
+            myGeneration[myCell] = generation;
+            myDistance[myCell] = 0;
+            myFirstStep[myCell] = -1;
+            myQueue[myTail++] = myCell;
+        }
+        if(opponentCell != -1)
+        {
+            opponentGeneration[opponentCell] = generation;
+            opponentDistance[opponentCell] = 0;
+            opponentQueue[opponentTail++] = opponentCell;
+        }
+
+        for(int layer = 0; myHead < myTail || opponentHead < opponentTail; layer++)
+        {
+            int nextDistance = layer + 1;
+            int myLayerEnd = myTail;
+            while(myHead < myLayerEnd)
+            {
+                int actual = myQueue[myHead++];
+                for(int edge = graph.getEdgeStart(actual); edge < graph.getEdgeEnd(actual); edge++)
+                {
+                    int neighbour = graph.getNeighbour(edge);
+                    if(myGeneration[neighbour] == generation) continue;
+                    if(opponentGeneration[neighbour] == generation) continue; // opponent was there first
+                    if(!dangerMap.isSafe(neighbour, nextDistance, myHorizon)) continue;
+                    myGeneration[neighbour] = generation;
+                    myDistance[neighbour] = nextDistance;
+                    myFirstStep[neighbour] = actual == myCell ? neighbour : myFirstStep[actual];
+                    myQueue[myTail++] = neighbour;
+                }
+            }
+            int opponentLayerEnd = opponentTail;
+            while(opponentHead < opponentLayerEnd)
+            {
+                int actual = opponentQueue[opponentHead++];
+                for(int edge = graph.getEdgeStart(actual); edge < graph.getEdgeEnd(actual); edge++)
+                {
+                    int neighbour = graph.getNeighbour(edge);
+                    if(opponentGeneration[neighbour] == generation) continue;
+                    if(myGeneration[neighbour] == generation && myDistance[neighbour] < nextDistance) continue;
+                    if(!dangerMap.isSafe(neighbour, nextDistance, opponentHorizon)) continue;
+                    opponentGeneration[neighbour] = generation;
+                    opponentDistance[neighbour] = nextDistance;
+                    opponentQueue[opponentTail++] = neighbour;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns which player reaches the cell first: ME, OPPONENT, TIE or NONE
+     * @param cell Id of the cell
+     */
+    public int owner(int cell)
+    {
+        boolean mine = myGeneration[cell] == generation;
+        boolean opponents = opponentGeneration[cell] == generation;
+        if(mine && opponents) return TIE; // opponent only keeps cells he reaches first or at the same time
+        if(mine) return ME;
+        if(opponents) return OPPONENT;
+        return NONE;
+    }
+
+    /**
+     * Returns my distance to the cell or -1 if I don't reach it first
+     * @param cell Id of the cell
+     */
+    public int myDistanceTo(int cell)
+    {
+        if(myGeneration[cell] != generation) return -1;
+        return myDistance[cell];
+    }
+
+    /**
+     * Returns opponent's distance to the cell or -1 if he doesn't reach it first
+     * @param cell Id of the cell
+     */
+    public int opponentDistanceTo(int cell)
+    {
+        if(opponentGeneration[cell] != generation) return -1;
+        return opponentDistance[cell];
+    }
+
+    /**
+     * Returns my move towards the cell or MoveType.PASS
+     * if I don't reach it first or I am standing on it.
+     * @param cell Id of the cell
+     */
+    public MoveType myMoveTo(int cell)
+    {
+        if(cell == -1 || myGeneration[cell] != generation || myFirstStep[cell] == -1) return MoveType.PASS;
+        return graph.getMove(myCell, myFirstStep[cell]);
+    }
+
+    public MoveType getMyNextMove(Point position)
+    {
+        return myMoveTo(toCell(position));
+    }
+
+    /**
+     * Returns position of the closest snippet that opponent
+     * can't reach before me or null if there is none.
+     * @param snippetPositions Positions of all snippets
+     */
+    public Point getBestSnippet(ArrayList<Point> snippetPositions)
+    {
+        Point bestSnippet = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for(Point snippetPosition : snippetPositions)
+        {
+            int distance = myDistanceTo(toCell(snippetPosition));
+            if(distance != -1 && distance < bestDistance)
+            {
+                bestSnippet = snippetPosition;
+                bestDistance = distance;
+            }
+        }
+        return bestSnippet;
+    }
+
+    private int toCell(Point point)
+    {
+        if(point == null || point.x < 0 || point.x >= graph.getWidth()
+                || point.y < 0 || point.y >= graph.getHeight()) return -1;
+        return graph.getCellId(point.x, point.y);
+    }
+}
@@ -0,0 +1,16 @@
+package instrument;
+
+/**
+ * instrument.EventKind
+ *
+ * Flight Recorder events the bot emits through Events
+ *
+ * @author Marek Gargas
+ */
+public enum EventKind {
+    PARSE,        // parsing the field sent by the engine
+    GRAPH_BUILD,  // building a graph of the field in GraphParser
+    BFS,          // a single BFS run
+    DECISION,     // the Solver choosing a move
+    PROTOCOL      // reading or writing a line of the engine protocol
+}
@@ -0,0 +1,30 @@
+package instrument;
+
+/**
+ * instrument.EventRecorder
+ *
+ * Emits the events of the bot. It is implemented with Flight Recorder
+ * in the jfr module, which needs Java 11, so the bot itself only knows
+ * this interface and Events loads the implementation when it is there.
+ * Events are passed around as Object for the same reason.
+ *
+ * @author Marek Gargas
+ */
+public interface EventRecorder {
+
+    /**
+     * Returns a started event of the kind, or null when no recording
+     * is interested in it, so nothing is allocated without a recording
+     */
+    Object begin(EventKind kind);
+
+    void commitParse(Object event, int round, int length);
+
+    void commitGraphBuild(Object event, int round, String graph, int cells);
+
+    void commitBfs(Object event, int round, int nodesExpanded, int targetsFound);
+
+    void commitDecision(Object event, int round, String move, int depth, boolean pondered);
+
+    void commitProtocol(Object event, int round, String direction, int bytes);
+}
@@ -0,0 +1,70 @@
+package instrument;
+
+/**
+ * instrument.Events
+ *
+ * Entry point for the Flight Recorder events of the bot. The recorder
+ * is loaded by name from the jfr module when its jar is on the class
+ * path and the JVM has Flight Recorder, so the bot still runs on Java 8
+ * without it. Without a recorder, or while no recording is running,
+ * begin returns null and the commits do nothing.
+ *
+ * Usage:
+ * Object event = Events.begin(EventKind.BFS);
+ * ...
+ * Events.commitBfs(event, round, nodesExpanded, targetsFound);
+ *
+ * @author Marek Gargas
+ */
+public final class Events {
+
+    private static final String RECORDER_CLASS = "instrument.jfr.FlightRecorderEvents";
+    private static final EventRecorder RECORDER = load();
+
+    private Events() {}
+
+    private static EventRecorder load()
+    {
+        try
+        {
+            return (EventRecorder) Class.forName(RECORDER_CLASS).getDeclaredConstructor().newInstance();
+        }
+        catch(ReflectiveOperationException | LinkageError e)
+        {
+            return null; // the jfr module is not on the class path or the JVM has no Flight Recorder
+        }
+    }
+
+    /**
+     * Returns a started event of the kind, null when it won't be recorded
+     */
+    public static Object begin(EventKind kind)
+    {
+        return RECORDER != null ? RECORDER.begin(kind) : null;
+    }
+
+    public static void commitParse(Object event, int round, int length)
+    {
+        if(event != null) RECORDER.commitParse(event, round, length);
+    }
+
+    public static void commitGraphBuild(Object event, int round, String graph, int cells)
+    {
+        if(event != null) RECORDER.commitGraphBuild(event, round, graph, cells);
+    }
+
+    public static void commitBfs(Object event, int round, int nodesExpanded, int targetsFound)
+    {
+        if(event != null) RECORDER.commitBfs(event, round, nodesExpanded, targetsFound);
+    }
+
+    public static void commitDecision(Object event, int round, String move, int depth, boolean pondered)
+    {
+        if(event != null) RECORDER.commitDecision(event, round, move, depth, pondered);
+    }
+
+    public static void commitProtocol(Object event, int round, String direction, int bytes)
+    {
+        if(event != null) RECORDER.commitProtocol(event, round, direction, bytes);
+    }
+}
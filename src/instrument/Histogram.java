@@ -0,0 +1,86 @@
+package instrument;
+
+/**
+ * instrument.Histogram
+ *
+ * Fixed size histogram of nanosecond durations. Values below 16 get
+ * their own bucket, bigger ones are grouped by their highest bit
+ * into 8 linear sub buckets, so every bucket is at most 12.5% wide.
+ * Recording only increments counters, nothing is allocated.
+ *
+ * @author Marek Gargas
+ */
+public class Histogram {
+
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = LINEAR_BUCKETS + (63 - 4) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long total;
+    private long max;
+
+    /**
+     * Adds a duration, negative ones are counted as 0
+     * @param nanos Duration in nanoseconds
+     */
+    public synchronized void record(long nanos)
+    {
+        if(nanos < 0) nanos = 0;
+        counts[bucketOf(nanos)]++;
+        count++;
+        total += nanos;
+        if(nanos > max) max = nanos;
+    }
+
+    private static int bucketOf(long value)
+    {
+        if(value < LINEAR_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - 4) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the smallest value that falls into the bucket
+     */
+    private static long lowestValueOf(int bucket)
+    {
+        if(bucket < LINEAR_BUCKETS) return bucket;
+        int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+        int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Returns the value that given percent of the durations don't exceed,
+     * rounded down to the start of its bucket
+     * @param percent Percentile 0 - 100
+     */
+    public synchronized long percentile(double percent)
+    {
+        if(count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percent / 100 * count));
+        long seen = 0;
+        for(int bucket=0;bucket<BUCKETS;bucket++)
+        {
+            seen += counts[bucket];
+            if(seen >= rank) return Math.min(lowestValueOf(bucket), max);
+        }
+        return max;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+}
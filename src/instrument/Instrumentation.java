@@ -0,0 +1,113 @@
+package instrument;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * instrument.Instrumentation
+ *
+ * Measures how long the phases of a round take. It is switched on
+ * with -Dbot.instrument=true and the summary goes to stderr, or to
+ * the file given by -Dbot.instrument.file. The engine kills the bot
+ * at the end of the game instead of closing its input, so the summary
+ * is written by a shutdown hook. The switch is a static
+ * final constant, so when it's off the JIT removes the measuring
+ * together with the calls to System.nanoTime.
+ *
+ * Usage:
+ * long start = Instrumentation.start();
+ * ...
+ * Instrumentation.stop(Phase.BFS, start);
+ *
+ * It also keeps the number of the current round for the Flight
+ * Recorder events of classes that don't know the state of the game.
+ *
+ * @author Marek Gargas
+ */
+public final class Instrumentation {
+
+    public static final boolean ENABLED = Boolean.getBoolean("bot.instrument");
+
+    private static final Histogram[] histograms = new Histogram[Phase.values().length];
+    private static volatile int round;
+
+    static {
+        for(int i=0;i<histograms.length;i++) histograms[i] = new Histogram();
+        if(ENABLED) Runtime.getRuntime().addShutdownHook(new Thread(Instrumentation::dump, "instrumentation-dump"));
+    }
+
+    private Instrumentation() {}
+
+    /**
+     * Returns the start time of a phase, 0 when instrumentation is off
+     */
+    public static long start()
+    {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time since start as one run of the phase
+     * @param phase Phase that has ended
+     * @param start Value returned by start
+     */
+    public static void stop(Phase phase, long start)
+    {
+        if(ENABLED) histograms[phase.ordinal()].record(System.nanoTime() - start);
+    }
+
+    public static void setRound(int round)
+    {
+        Instrumentation.round = round;
+    }
+
+    public static int getRound()
+    {
+        return round;
+    }
+
+    public static Histogram getHistogram(Phase phase)
+    {
+        return histograms[phase.ordinal()];
+    }
+
+    /**
+     * Writes the summary of all phases that were measured, does nothing
+     * when instrumentation is off. Called by the shutdown hook.
+     */
+    public static void dump()
+    {
+        if(!ENABLED) return;
+        String file = System.getProperty("bot.instrument.file");
+        if(file == null)
+        {
+            dump(System.err);
+            return;
+        }
+        try(PrintStream output = new PrintStream(new FileOutputStream(file)))
+        {
+            dump(output);
+        }
+        catch(IOException e)
+        {
+            System.err.println(String.format("Cannot write instrumentation to %s: %s", file, e.getMessage()));
+        }
+    }
+
+    public static void dump(PrintStream output)
+    {
+        output.println(String.format("%-10s %8s %10s %10s %10s %10s %10s",
+                "phase", "count", "total ms", "mean us", "p50 us", "p99 us", "max us"));
+        for(Phase phase : Phase.values())
+        {
+            Histogram histogram = getHistogram(phase);
+            long count = histogram.getCount();
+            if(count == 0) continue;
+            output.println(String.format("%-10s %8d %10.1f %10.1f %10.1f %10.1f %10.1f",
+                    phase.name().toLowerCase(), count, histogram.getTotal() / 1e6,
+                    histogram.getTotal() / 1e3 / count, histogram.percentile(50) / 1e3,
+                    histogram.percentile(99) / 1e3, histogram.getMax() / 1e3));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package instrument;
+
+/**
+ * instrument.Phase
+ *
+ * Parts of a round whose time is measured by Instrumentation
+ *
+ * @author Marek Gargas
+ */
+public enum Phase {
+    PARSE,      // parsing the field sent by the engine
+    GRAPH,      // building a graph of the field in GraphParser
+    BFS,        // a single BFS run
+    SELECTION,  // the greedy snippet selection of the Solver
+    SEARCH,     // iterative deepening of the Solver
+    PONDER,     // searching before the move is asked for
+    MOVE        // from reading the action to writing the move
+}
@@ -43,6 +43,17 @@ public class Move {
         this.bombTicks = bombTicks;
     }
 
+    public MoveType getMoveType() {
+        return this.moveType;
+    }
+
+    /**
+     * @return Ticks of the bomb dropped with this move, null if no bomb is dropped
+     */
+    public Integer getBombTicks() {
+        return this.bombTicks;
+    }
+
     public String toString() {
         if (this.moveType == MoveType.PASS || this.bombTicks == null) {
             return this.moveType.toString();